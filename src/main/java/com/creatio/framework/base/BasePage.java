@@ -2,68 +2,110 @@ package com.creatio.framework.base;
 
 import com.creatio.framework.reports.Reports;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.edge.EdgeDriver;
-import org.openqa.selenium.firefox.FirefoxDriver;
-import org.testng.Assert;
+import org.testng.ITestContext;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Parameters;
 
 public class BasePage extends Reports {
-    /** Singleton instance of the WebDriver. */
-    private static WebDriver driver = null;
+    /** WebDriver instance owned by the current test thread. */
+    private static final ThreadLocal<WebDriver> driver = new ThreadLocal<WebDriver>();
 
     /**
-     * Launches the specified browser before each test method.
+     * Launches {@code SESSION_POOL_WARMUP} browser sessions before each {@code <test>} starts,
+     * so that the first tests of each worker do not pay the browser startup. The sessions are
+     * launched with the same parameters {@link #setupBrowser(String, ITestContext)} borrows with,
+     * including those set on the {@code <test>}; sessions already idle for them are reused.
+     *
+     * @param browserName the name of the browser to launch (chrome, firefox, edge)
+     * @param context     the TestNG context, whose parameters may override the launch profile
+     */
+    @BeforeTest(alwaysRun = true)
+    @Parameters({ "BROWSER" })
+    public void warmUpBrowsers(String browserName, ITestContext context) {
+        if (DriverPool.WARMUP > 0 && !BrowserContexts.ENABLED) {
+            LaunchProfile profile = LaunchProfile.from(context.getCurrentXmlTest().getAllParameters());
+            DriverPool.warmUp(poolKey(browserName, profile), () -> DriverFactory.createDriver(browserName, false, profile), DriverPool.WARMUP);
+        }
+    }
+
+    /**
+     * Borrows a browser session of the specified type before each test method.
      * This method is invoked automatically by TestNG via the {@code @BeforeMethod} annotation.
+     * The session comes from {@link DriverPool}, so a browser is only launched when no warm
+     * one is idle; with {@code EXECUTION_MODE=context} it is an isolated context inside a
+     * shared browser process from {@link BrowserContexts} instead. It is bound to the calling
+     * thread, so suites running with {@code parallel="methods"} or {@code parallel="classes"}
+     * get one browser per worker. Headless mode, window size and request blocking follow the
+     * {@link LaunchProfile} from {@code Config.properties} and the suite parameters.
      *
      * @param browserName the name of the browser to launch (chrome, firefox, edge)
+     * @param context     the TestNG context, whose parameters may override the launch profile
      * @throws AssertionError if the specified browser is not supported
      */
     @BeforeMethod(alwaysRun = true)
     @Parameters({ "BROWSER" })
-    public void setupBrowser(String browserName) {
-        if (browserName.equalsIgnoreCase("chrome")) {
-            driver = new ChromeDriver();
-        } else if (browserName.equalsIgnoreCase("firefox")) {
-            driver = new FirefoxDriver();
-        } else if (browserName.equalsIgnoreCase("edge")) {
-            driver = new EdgeDriver();
+    public void setupBrowser(String browserName, ITestContext context) {
+        LaunchProfile profile = LaunchProfile.from(context.getCurrentXmlTest().getAllParameters());
+        if (BrowserContexts.ENABLED) {
+            driver.set(BrowserContexts.open(browserName, profile));
         } else {
-            Assert.fail("Browser is not supported: " + browserName);
+            driver.set(DriverPool.borrow(poolKey(browserName, profile), () -> DriverFactory.createDriver(browserName, false, profile)));
         }
-        driver.manage().window().maximize();
-        driver.manage().deleteAllCookies();
     }
 
     /**
-     * Quits the browser session after each test method.
+     * Returns the browser session to the pool after each test method.
+     * The pool resets it for the next test, or quits it once it is worn out or broken.
      * This method is invoked automatically by TestNG via the {@code @AfterMethod} annotation.
      */
     @AfterMethod(alwaysRun = true)
     public void teardownBrowser() {
-        if (driver != null) {
-            driver.quit();
+        WebDriver webDriver = driver.get();
+        if (webDriver != null) {
+            try {
+                if (BrowserContexts.ENABLED) {
+                    BrowserContexts.close(webDriver);
+                } else {
+                    DriverPool.release(webDriver);
+                }
+            } finally {
+                driver.remove();
+            }
         }
     }
 
     /**
-     * Returns the current instance of WebDriver.
+     * Quits all pooled and shared browser sessions once the suite has finished.
+     */
+    @AfterSuite(alwaysRun = true)
+    public void shutdownBrowsers() {
+        DriverPool.shutdown();
+        BrowserContexts.shutdown();
+    }
+
+    private static String poolKey(String browserName, LaunchProfile profile) {
+        return browserName.toLowerCase() + "|" + profile.key();
+    }
+
+    /**
+     * Returns the WebDriver instance owned by the current thread.
      *
-     * @return the active {@link WebDriver} instance
+     * @return the active {@link WebDriver} instance, or {@code null} if no browser was launched on this thread
      */
     public static WebDriver getDriver() {
-        return driver;
+        return driver.get();
     }
 
     /**
-     * Sets the WebDriver instance.
+     * Sets the WebDriver instance for the current thread.
      * This method can be used to override the driver instance if needed.
      *
      * @param driver the {@link WebDriver} instance to set
      */
     public static void setDriver(WebDriver driver) {
-        BasePage.driver = driver;
+        BasePage.driver.set(driver);
     }
 }
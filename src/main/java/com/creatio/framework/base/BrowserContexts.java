@@ -0,0 +1,549 @@
+package com.creatio.framework.base;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.creatio.framework.constants.Constants;
+import com.creatio.framework.reports.CommandTimings;
+import com.creatio.framework.utilities.ConfigService;
+import com.creatio.framework.webcommons.NetworkMonitor;
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.bidi.browsingcontext.BrowsingContext;
+import org.openqa.selenium.bidi.browsingcontext.CreateContextParameters;
+import org.openqa.selenium.bidi.browsingcontext.ReadinessState;
+import org.openqa.selenium.bidi.module.Browser;
+import org.openqa.selenium.bidi.module.Script;
+import org.openqa.selenium.bidi.script.EvaluateResult;
+import org.openqa.selenium.bidi.script.EvaluateResultExceptionValue;
+import org.openqa.selenium.bidi.script.EvaluateResultSuccess;
+import org.openqa.selenium.bidi.script.LocalValue;
+import org.openqa.selenium.bidi.script.RemoteReference;
+import org.openqa.selenium.bidi.script.RemoteValue;
+import org.openqa.selenium.bidi.script.ResultOwnership;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.RemoteWebElement;
+import org.openqa.selenium.support.decorators.Decorated;
+import org.openqa.selenium.support.decorators.WebDriverDecorator;
+
+/**
+ * Runs several tests inside one browser process, each in its own isolated browsing context.
+ *
+ * <p>Every test gets a WebDriver BiDi user context (its own cookie jar, storage and cache) with a
+ * single tab in it. Up to {@code CONTEXTS_PER_BROWSER} tests share one browser process; a new
+ * process is launched when all existing ones are full. Enabled with {@code EXECUTION_MODE=context}
+ * in {@code Config.properties}.</p>
+ *
+ * <p>The returned {@link WebDriver} is a decorator that pins every command to the test's own tab.
+ * The commands that block for long are addressed to the tab directly over BiDi and run concurrently
+ * with the commands of other tests: page loads ({@code get}, {@code navigate().to},
+ * {@code navigate().refresh}) and asynchronous scripts such as {@code DomWait} conditions. Classic
+ * WebDriver has a single "current window" per session, so every other command first points the
+ * session at the test's tab and holds it there until the command returns; commands for another
+ * tab wait for that. {@code quit()} and {@code close()} only dispose the test's own context.</p>
+ */
+public class BrowserContexts {
+
+    /** {@code true} when {@code EXECUTION_MODE=context}, i.e. tests share browser processes. */
+    public static final boolean ENABLED = "context".equalsIgnoreCase(ConfigService.current().get("EXECUTION_MODE", "session"));
+
+    /** Maximum number of isolated contexts hosted by one browser process. */
+    public static final int CONTEXTS_PER_BROWSER = ConfigService.current().getInt("CONTEXTS_PER_BROWSER", 4);
+
+    /** Rejection message the asynchronous script wrapper uses when the script timeout expires. */
+    private static final String SCRIPT_TIMEOUT = "__script_timeout__";
+
+    private static final Map<String, BrowserGroup> browsers = new ConcurrentHashMap<String, BrowserGroup>();
+    private static final Map<WebDriver, ContextDriver> open = new ConcurrentHashMap<WebDriver, ContextDriver>();
+
+    /**
+     * Opens an isolated browsing context for the calling test.
+     *
+     * @param browserName the name of the browser to use (chrome, firefox, edge)
+     * @param profile     launch profile of the browser process hosting the context
+     * @return a {@link WebDriver} whose commands all target the new context
+     */
+    public static WebDriver open(String browserName, LaunchProfile profile) {
+        SharedBrowser browser = acquire(browserName, profile);
+        ContextDriver context;
+        try {
+            context = browser.newContext();
+        } catch (RuntimeException e) {
+            browser.releaseSlot();
+            throw e;
+        }
+        WebDriver decorated = context.decorate(browser.driver);
+        open.put(decorated, context);
+        return decorated;
+    }
+
+    /**
+     * Disposes the context behind a driver obtained from {@link #open(String, LaunchProfile)}.
+     * The browser process stays alive for the next test.
+     *
+     * @param driver the decorated driver returned by {@link #open(String, LaunchProfile)}
+     */
+    public static void close(WebDriver driver) {
+        ContextDriver context = open.remove(driver);
+        if (context != null) {
+            context.dispose();
+        }
+    }
+
+    /**
+     * Quits every shared browser process.
+     */
+    public static void shutdown() {
+        for (BrowserGroup group : browsers.values()) {
+            synchronized (group) {
+                for (SharedBrowser browser : group.browsers) {
+                    try {
+                        NetworkMonitor.detach(browser.driver);
+                        browser.driver.quit();
+                    } catch (WebDriverException e) {
+                        // The browser is already gone
+                    }
+                }
+                group.browsers.clear();
+            }
+        }
+    }
+
+    /**
+     * Takes a free slot in a running browser, or in one being launched. When there is none, the
+     * caller launches a new browser itself, outside the group lock, so tests that fit into running
+     * browsers never wait for a launch.
+     */
+    private static SharedBrowser acquire(String browserName, LaunchProfile profile) {
+        String key = browserName.toLowerCase() + "|" + profile.key();
+        BrowserGroup group = browsers.computeIfAbsent(key, k -> new BrowserGroup());
+        Launch launch;
+        boolean launcher = false;
+        synchronized (group) {
+            for (SharedBrowser browser : group.browsers) {
+                if (browser.contexts < CONTEXTS_PER_BROWSER) {
+                    browser.contexts++;
+                    return browser;
+                }
+            }
+            launch = null;
+            for (Launch pending : group.launches) {
+                if (pending.claimed < CONTEXTS_PER_BROWSER) {
+                    launch = pending;
+                    break;
+                }
+            }
+            if (launch == null) {
+                launch = new Launch();
+                group.launches.add(launch);
+                launcher = true;
+            }
+            launch.claimed++;
+        }
+        if (launcher) {
+            SharedBrowser browser;
+            WebDriver driver = null;
+            try {
+                driver = DriverFactory.createDriver(browserName, true, profile);
+                browser = new SharedBrowser(group, driver);
+            } catch (RuntimeException | Error e) {
+                if (driver != null) {
+                    driver.quit();
+                }
+                synchronized (group) {
+                    group.launches.remove(launch);
+                }
+                launch.browser.completeExceptionally(e);
+                throw e;
+            }
+            synchronized (group) {
+                group.launches.remove(launch);
+                browser.contexts = launch.claimed;
+                group.browsers.add(browser);
+            }
+            launch.browser.complete(browser);
+            return browser;
+        }
+        try {
+            return launch.browser.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /** The browser processes launched for one browser name and launch profile. */
+    private static class BrowserGroup {
+        private final List<SharedBrowser> browsers = new ArrayList<SharedBrowser>();
+        private final List<Launch> launches = new ArrayList<Launch>();
+    }
+
+    /** A browser process being launched, with the number of contexts already promised to callers. */
+    private static class Launch {
+        private final CompletableFuture<SharedBrowser> browser = new CompletableFuture<SharedBrowser>();
+        private int claimed;
+    }
+
+    /** One browser process hosting up to {@link #CONTEXTS_PER_BROWSER} contexts. */
+    private static class SharedBrowser {
+        private final BrowserGroup group;
+        private final WebDriver driver;
+        private final Browser bidiBrowser;
+        private final Script script;
+        private final ReadinessState readiness;
+        /** Window handles of every context opened in this process, by owning user context. */
+        private final Map<String, String> owners = new ConcurrentHashMap<String, String>();
+        /** Window the classic session currently points at; guarded by {@code this}. */
+        private String currentHandle;
+        /** Classic commands running against {@link #currentHandle}; guarded by {@code this}. */
+        private int running;
+        /** Number of contexts currently hosted; guarded by {@code group}. */
+        private int contexts;
+
+        private SharedBrowser(BrowserGroup group, WebDriver driver) {
+            this.group = group;
+            this.driver = driver;
+            this.bidiBrowser = new Browser(driver);
+            this.script = new Script(driver);
+            this.readiness = readiness(driver);
+            this.currentHandle = driver.getWindowHandle();
+        }
+
+        private ContextDriver newContext() {
+            String userContext = bidiBrowser.createUserContext();
+            BrowsingContext tab = new BrowsingContext(driver, new CreateContextParameters(WindowType.TAB).userContext(userContext));
+            owners.put(tab.getId(), userContext);
+            NetworkMonitor monitor = NetworkMonitor.of(driver);
+            if (monitor != null) {
+                monitor.touch(tab.getId());
+            }
+            return new ContextDriver(this, userContext, tab.getId());
+        }
+
+        private void releaseSlot() {
+            synchronized (group) {
+                contexts--;
+            }
+        }
+
+        /**
+         * Points the classic session at the given window and marks a command as running there.
+         * Waits while commands for another window are still running.
+         */
+        private synchronized void enter(String handle) {
+            while (running > 0 && !handle.equals(currentHandle)) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WebDriverException("Interrupted while waiting for the browser window", e);
+                }
+            }
+            if (!handle.equals(currentHandle)) {
+                driver.switchTo().window(handle);
+                currentHandle = handle;
+            }
+            running++;
+        }
+
+        private synchronized void leave() {
+            if (--running == 0) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Loads a page into the given tab over BiDi, without pointing the classic session at it.
+         */
+        private void navigate(String handle, String url) {
+            BrowsingContext context = new BrowsingContext(driver, handle);
+            if (url == null) {
+                CommandTimings.time("BrowsingContext.reload", () -> null, () -> context.reload(readiness));
+            } else {
+                CommandTimings.time("BrowsingContext.navigate", () -> url, () -> context.navigate(url, readiness));
+            }
+            synchronized (this) {
+                // A classic page load leaves the session on the top-level document; so does re-focusing
+                if (handle.equals(currentHandle) && running == 0) {
+                    currentHandle = null;
+                }
+            }
+        }
+
+        /** @return the BiDi readiness state matching the session's page load strategy */
+        private static ReadinessState readiness(WebDriver driver) {
+            Object strategy = driver instanceof HasCapabilities
+                    ? ((HasCapabilities) driver).getCapabilities().getCapability("pageLoadStrategy") : null;
+            if ("eager".equals(String.valueOf(strategy))) {
+                return ReadinessState.INTERACTIVE;
+            }
+            if ("none".equals(String.valueOf(strategy))) {
+                return ReadinessState.NONE;
+            }
+            return ReadinessState.COMPLETE;
+        }
+    }
+
+    /** Decorator that routes every command of one test to its own user context. */
+    private static class ContextDriver extends WebDriverDecorator<WebDriver> {
+        private final SharedBrowser browser;
+        private final String userContext;
+        private final String mainHandle;
+        private volatile String handle;
+
+        private ContextDriver(SharedBrowser browser, String userContext, String handle) {
+            this.browser = browser;
+            this.userContext = userContext;
+            this.mainHandle = handle;
+            this.handle = handle;
+        }
+
+        @Override
+        public Object call(Decorated<?> target, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            Object original = target.getOriginal();
+            if (original instanceof WebDriver
+                    && ("quit".equals(name) || ("close".equals(name) && handle.equals(mainHandle)))) {
+                if (open.values().remove(this)) {
+                    dispose();
+                }
+                return null;
+            }
+            if ((original instanceof WebDriver && "get".equals(name))
+                    || (original instanceof WebDriver.Navigation && "to".equals(name))) {
+                browser.navigate(handle, String.valueOf(args[0]));
+                return null;
+            }
+            if (original instanceof WebDriver.Navigation && "refresh".equals(name)) {
+                browser.navigate(handle, null);
+                return null;
+            }
+            if (original instanceof JavascriptExecutor && "executeAsyncScript".equals(name)) {
+                List<LocalValue> arguments = toLocalValues(args[1] == null ? new Object[0] : (Object[]) args[1]);
+                if (arguments != null) {
+                    return executeAsyncScript((String) args[0], arguments);
+                }
+            }
+            browser.enter(handle);
+            try {
+                Object result = super.call(target, method, args);
+                if (original instanceof WebDriver.TargetLocator && "window".equals(name)) {
+                    synchronized (browser) {
+                        handle = (String) args[0];
+                        browser.currentHandle = handle;
+                    }
+                } else if (original instanceof WebDriver && "getWindowHandles".equals(name)) {
+                    result = ownHandles((Set<?>) result);
+                }
+                return result;
+            } finally {
+                browser.leave();
+            }
+        }
+
+        /**
+         * Runs an asynchronous script in this test's tab over BiDi. The script gets the classic
+         * callback as its last argument; the call fails like a classic one once the session's
+         * script timeout has passed.
+         */
+        private Object executeAsyncScript(String source, List<LocalValue> arguments) {
+            arguments.add(LocalValue.numberValue(Constants.SCRIPT_TIME * 1000L));
+            String function = "function() {"
+                    + "  var args = Array.prototype.slice.call(arguments);"
+                    + "  var timeout = args.pop();"
+                    + "  return new Promise(function(resolve, reject) {"
+                    + "    var timer = setTimeout(function() { reject(new Error('" + SCRIPT_TIMEOUT + "')); }, timeout);"
+                    + "    args.push(function(value) { clearTimeout(timer); resolve(value); });"
+                    + "    try { (function() {\n" + source + "\n}).apply(window, args); } catch (e) { clearTimeout(timer); reject(e); }"
+                    + "  });"
+                    + "}";
+            EvaluateResult result;
+            try {
+                result = CommandTimings.time("Script.callFunction", () -> null,
+                        () -> browser.script.callFunctionInBrowsingContext(handle, function, true,
+                                Optional.of(arguments), Optional.empty(), Optional.of(ResultOwnership.NONE)));
+            } catch (WebDriverException e) {
+                if (String.valueOf(e.getMessage()).contains("no such node")) {
+                    throw new StaleElementReferenceException("Script argument is no longer attached to the DOM", e);
+                }
+                throw e;
+            }
+            if (result instanceof EvaluateResultExceptionValue) {
+                String text = ((EvaluateResultExceptionValue) result).getExceptionDetails().getText();
+                if (String.valueOf(text).contains(SCRIPT_TIMEOUT)) {
+                    throw new ScriptTimeoutException("Script did not call back within " + Constants.SCRIPT_TIME + " seconds");
+                }
+                throw new JavascriptException(text);
+            }
+            return toJava(((EvaluateResultSuccess) result).getResult());
+        }
+
+        /** @return the script arguments as BiDi values, or {@code null} if one cannot be sent over BiDi */
+        private static List<LocalValue> toLocalValues(Object[] values) {
+            List<LocalValue> result = new ArrayList<LocalValue>();
+            for (Object value : values) {
+                LocalValue local = toLocalValue(value);
+                if (local == null) {
+                    return null;
+                }
+                result.add(local);
+            }
+            return result;
+        }
+
+        private static LocalValue toLocalValue(Object value) {
+            if (value == null) {
+                return LocalValue.nullValue();
+            }
+            if (value instanceof String) {
+                return LocalValue.stringValue((String) value);
+            }
+            if (value instanceof Boolean) {
+                return LocalValue.booleanValue((Boolean) value);
+            }
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                return LocalValue.numberValue(((Number) value).longValue());
+            }
+            if (value instanceof Number) {
+                return LocalValue.numberValue(((Number) value).doubleValue());
+            }
+            if (value instanceof Collection || value instanceof Object[]) {
+                Object[] items = value instanceof Collection ? ((Collection<?>) value).toArray() : (Object[]) value;
+                List<LocalValue> list = toLocalValues(items);
+                return list == null ? null : LocalValue.arrayValue(list);
+            }
+            if (value instanceof Map) {
+                Map<Object, LocalValue> map = new LinkedHashMap<Object, LocalValue>();
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    LocalValue local = toLocalValue(entry.getValue());
+                    if (local == null) {
+                        return null;
+                    }
+                    map.put(String.valueOf(entry.getKey()), local);
+                }
+                return LocalValue.objectValue(map);
+            }
+            if (value instanceof WebElement) {
+                // Resolves page-object proxies, which throws NoSuchElementException as a classic call would
+                Object element = value;
+                while (!(element instanceof RemoteWebElement) && element instanceof WrapsElement) {
+                    element = ((WrapsElement) element).getWrappedElement();
+                }
+                if (element instanceof RemoteWebElement) {
+                    // Classic element references are BiDi shared ids
+                    return LocalValue.remoteReference(RemoteReference.Type.SHARED_ID, ((RemoteWebElement) element).getId());
+                }
+            }
+            return null;
+        }
+
+        /** Converts a script result the way a classic {@code executeAsyncScript} would return it. */
+        private Object toJava(RemoteValue value) {
+            Object raw = value.getValue().orElse(null);
+            switch (value.getType()) {
+                case "undefined":
+                case "null":
+                    return null;
+                case "number":
+                    if (raw instanceof Number) {
+                        double number = ((Number) raw).doubleValue();
+                        return number == Math.rint(number) && Math.abs(number) < Long.MAX_VALUE ? (Object) (long) number : (Object) number;
+                    }
+                    return raw;
+                case "array":
+                case "set":
+                case "nodelist":
+                case "htmlcollection":
+                    List<Object> list = new ArrayList<Object>();
+                    for (Object item : (Collection<?>) raw) {
+                        list.add(toJava((RemoteValue) item));
+                    }
+                    return list;
+                case "object":
+                case "map":
+                    Map<String, Object> map = new LinkedHashMap<String, Object>();
+                    if (raw instanceof Map) {
+                        for (Map.Entry<?, ?> entry : ((Map<?, ?>) raw).entrySet()) {
+                            Object key = entry.getKey() instanceof RemoteValue ? toJava((RemoteValue) entry.getKey()) : entry.getKey();
+                            map.put(String.valueOf(key), toJava((RemoteValue) entry.getValue()));
+                        }
+                    }
+                    return map;
+                case "node":
+                    if (value.getSharedId().isPresent()) {
+                        return element(value.getSharedId().get());
+                    }
+                    return null;
+                default:
+                    return raw;
+            }
+        }
+
+        /** @return the element with the given shared id, routed through this decorator like any found element */
+        private WebElement element(String id) {
+            WebDriver raw = browser.driver;
+            while (!(raw instanceof RemoteWebDriver) && raw instanceof WrapsDriver) {
+                raw = ((WrapsDriver) raw).getWrappedDriver();
+            }
+            RemoteWebElement element = new RemoteWebElement();
+            element.setParent((RemoteWebDriver) raw);
+            element.setId(id);
+            return createProxy(createDecorated(element), WebElement.class);
+        }
+
+        /** Hides the windows that belong to other tests sharing the process. */
+        private Set<String> ownHandles(Set<?> handles) {
+            Set<String> own = new LinkedHashSet<String>();
+            for (Object h : handles) {
+                String owner = browser.owners.get(h.toString());
+                if (owner == null || owner.equals(userContext)) {
+                    own.add(h.toString());
+                }
+            }
+            return own;
+        }
+
+        private void dispose() {
+            try {
+                browser.bidiBrowser.removeUserContext(userContext);
+            } catch (WebDriverException e) {
+                // The context is already gone together with its windows
+            }
+            List<String> handles = new ArrayList<String>();
+            for (Map.Entry<String, String> owner : browser.owners.entrySet()) {
+                if (owner.getValue().equals(userContext)) {
+                    handles.add(owner.getKey());
+                }
+            }
+            browser.owners.keySet().removeAll(handles);
+            NetworkMonitor.forget(browser.driver, handles);
+            synchronized (browser) {
+                if (browser.currentHandle != null && !browser.owners.containsKey(browser.currentHandle)) {
+                    browser.currentHandle = null;
+                }
+            }
+            browser.releaseSlot();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.creatio.framework.base;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.creatio.framework.reports.CommandTimings;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+/**
+ * Times every call made through a session and hands it to {@link CommandTimings}.
+ *
+ * <p>{@link DriverFactory} wraps each session once, right after it is started, so pooled and
+ * shared sessions keep the same decorated instance for their whole life. Calls that never reach
+ * the browser ({@code manage()}, {@code toString()}, ...) are not recorded; see
+ * {@link CommandTimings#pageMethod()} for how the page-object method is found.</p>
+ */
+class CommandTimingListener implements WebDriverListener {
+
+    /** Methods answered locally by the client; timing them would only add noise. */
+    private static final Set<String> LOCAL = new HashSet<String>(Arrays.asList("equals", "hashCode", "toString",
+            "manage", "navigate", "switchTo", "getWrappedDriver", "getWrappedElement", "getCapabilities", "getSessionId"));
+
+    /**
+     * Methods of {@link WebDriver.Options} that only return another interface. Matched by declaring
+     * type, because {@code TargetLocator.window(handle)} does reach the browser.
+     */
+    private static final Set<String> LOCAL_OPTIONS = new HashSet<String>(Arrays.asList("timeouts", "window", "logs"));
+
+    /** Start times of the calls in progress on this thread; calls can nest through decorated results. */
+    private static final ThreadLocal<ArrayDeque<long[]>> started = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Instruments a freshly started session.
+     *
+     * @param driver the session
+     * @return the decorated session, or {@code driver} itself when timing is disabled
+     */
+    static WebDriver decorate(WebDriver driver) {
+        if (!CommandTimings.ENABLED) {
+            return driver;
+        }
+        return new EventFiringDecorator<WebDriver>(new CommandTimingListener()).decorate(driver);
+    }
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        if (!isLocal(method)) {
+            started.get().push(new long[] {System.nanoTime()});
+        }
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        finish(target, method, args);
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        finish(target, method, args);
+    }
+
+    private void finish(Object target, Method method, Object[] args) {
+        if (isLocal(method)) {
+            return;
+        }
+        long[] start = started.get().poll();
+        if (start == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - start[0];
+        CommandTimings.record(method.getDeclaringClass().getSimpleName() + "." + method.getName(), CommandTimings.pageMethod(), nanos,
+                () -> describe(target, args));
+    }
+
+    private static boolean isLocal(Method method) {
+        return LOCAL.contains(method.getName())
+                || (WebDriver.Options.class.isAssignableFrom(method.getDeclaringClass()) && LOCAL_OPTIONS.contains(method.getName()));
+    }
+
+    /** The locator for finds, otherwise the locator the target element was found with. */
+    private static String describe(Object target, Object[] args) {
+        if (args != null && args.length > 0 && args[0] instanceof By) {
+            return args[0].toString();
+        }
+        if (target instanceof WebDriver) {
+            return null;
+        }
+        String text = String.valueOf(target);
+        int arrow = text.lastIndexOf(" -> ");
+        return arrow < 0 ? text : text.substring(arrow + 4, text.length() - 1);
+    }
+}
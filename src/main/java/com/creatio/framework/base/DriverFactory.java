@@ -0,0 +1,87 @@
+package com.creatio.framework.base;
+
+import java.time.Duration;
+
+import com.creatio.framework.constants.Constants;
+import com.creatio.framework.reports.CommandTimings;
+import com.creatio.framework.webcommons.NetworkMonitor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.edge.EdgeDriver;
+import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.firefox.FirefoxDriver;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.testng.Assert;
+
+/**
+ * Factory for launching new browser sessions.
+ * Keeps the browser-specific startup logic in one place so that {@link BasePage},
+ * {@link DriverPool} and {@link BrowserContexts} create sessions the same way.
+ */
+public class DriverFactory {
+
+    /**
+     * Launches a new classic WebDriver session using the launch profile from {@code Config.properties}.
+     *
+     * @param browserName the name of the browser to launch (chrome, firefox, edge)
+     * @return a freshly started {@link WebDriver} with no cookies
+     * @throws AssertionError if the specified browser is not supported
+     */
+    public static WebDriver createDriver(String browserName) {
+        return createDriver(browserName, false, LaunchProfile.fromConfig());
+    }
+
+    /**
+     * Launches a new browser session for the given browser name.
+     * When {@code COMMAND_TIMING} is on, the start-up time is recorded and the session is returned
+     * wrapped so that every command it runs is timed.
+     *
+     * @param browserName the name of the browser to launch (chrome, firefox, edge)
+     * @param biDi        {@code true} to open a WebDriver BiDi connection alongside the session
+     * @param profile     headless mode, window size and request blocking to apply
+     * @return a freshly started {@link WebDriver} with no cookies
+     * @throws AssertionError if the specified browser is not supported
+     */
+    public static WebDriver createDriver(String browserName, boolean biDi, LaunchProfile profile) {
+        long start = System.nanoTime();
+        WebDriver driver = null;
+        if (browserName.equalsIgnoreCase("chrome")) {
+            ChromeOptions options = new ChromeOptions();
+            options.setScriptTimeout(Duration.ofSeconds(Constants.SCRIPT_TIME));
+            profile.applyTo(options);
+            if (biDi || profile.needsBiDi(false)) {
+                options.enableBiDi();
+            }
+            driver = new ChromeDriver(options);
+        } else if (browserName.equalsIgnoreCase("firefox")) {
+            FirefoxOptions options = new FirefoxOptions();
+            options.setScriptTimeout(Duration.ofSeconds(Constants.SCRIPT_TIME));
+            profile.applyTo(options);
+            if (biDi || profile.needsBiDi(true)) {
+                options.enableBiDi();
+            }
+            driver = new FirefoxDriver(options);
+        } else if (browserName.equalsIgnoreCase("edge")) {
+            EdgeOptions options = new EdgeOptions();
+            options.setScriptTimeout(Duration.ofSeconds(Constants.SCRIPT_TIME));
+            profile.applyTo(options);
+            if (biDi || profile.needsBiDi(false)) {
+                options.enableBiDi();
+            }
+            driver = new EdgeDriver(options);
+        } else {
+            Assert.fail("Browser is not supported: " + browserName);
+        }
+        profile.applyTo(driver);
+        // Counts requests from the first navigation on; does nothing without BiDi
+        NetworkMonitor.of(driver);
+        driver.manage().deleteAllCookies();
+        if (!CommandTimings.ENABLED) {
+            return driver;
+        }
+        CommandTimings.record("Browser.start", CommandTimings.pageMethod(), System.nanoTime() - start,
+                () -> browserName.toLowerCase() + " " + profile.key());
+        return CommandTimingListener.decorate(driver);
+    }
+}
@@ -0,0 +1,243 @@
+package com.creatio.framework.base;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import com.creatio.framework.utilities.ConfigService;
+import com.creatio.framework.webcommons.NetworkMonitor;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chromium.HasCdp;
+
+/**
+ * Bounded pool of warm browser sessions shared by all test threads.
+ *
+ * <p>Sessions are grouped by a key describing the browser type and its launch capabilities.
+ * A test borrows a session in {@code @BeforeMethod} and gives it back in {@code @AfterMethod};
+ * returned sessions are reset (extra windows closed, {@code about:blank} loaded, cookies and the
+ * storage of the open origins cleared) and kept for the next test. A session is quit instead of reused once it has served
+ * {@code SESSION_MAX_USES} tests or when the reset fails, for example after a browser crash.</p>
+ *
+ * <p>Pool settings are read from {@code Config.properties}:
+ * {@code SESSION_POOL_SIZE} (live sessions per key), {@code SESSION_MAX_USES} and
+ * {@code SESSION_POOL_WARMUP} (sessions launched up front by {@link #warmUp}).</p>
+ */
+public class DriverPool {
+
+    /** Maximum number of live sessions per key. */
+    public static final int POOL_SIZE = ConfigService.current().getInt("SESSION_POOL_SIZE", 5);
+
+    /** Number of tests a session may serve before it is recycled. */
+    public static final int MAX_USES = ConfigService.current().getInt("SESSION_MAX_USES", 50);
+
+    /** Number of sessions to launch before the first test. */
+    public static final int WARMUP = ConfigService.current().getInt("SESSION_POOL_WARMUP", 0);
+
+    private static final Map<String, DriverPool> pools = new ConcurrentHashMap<String, DriverPool>();
+    private static final Map<WebDriver, PooledSession> borrowed = new ConcurrentHashMap<WebDriver, PooledSession>();
+
+    private final String key;
+    private final Supplier<WebDriver> factory;
+    private final Semaphore permits = new Semaphore(POOL_SIZE, true);
+    private final LinkedBlockingDeque<PooledSession> idle = new LinkedBlockingDeque<PooledSession>();
+
+    private DriverPool(String key, Supplier<WebDriver> factory) {
+        this.key = key;
+        this.factory = factory;
+    }
+
+    /**
+     * Borrows a session for the given key, launching a new browser only when no idle one is available.
+     * Blocks while {@link #POOL_SIZE} sessions of this key are already in use.
+     *
+     * @param key     the browser type and capabilities the session must match
+     * @param factory launches a new session when the pool has none idle
+     * @return a clean {@link WebDriver} owned by the caller until {@link #release(WebDriver)}
+     */
+    public static WebDriver borrow(String key, Supplier<WebDriver> factory) {
+        DriverPool pool = pools.computeIfAbsent(key, k -> new DriverPool(k, factory));
+        PooledSession session = pool.take();
+        borrowed.put(session.driver, session);
+        return session.driver;
+    }
+
+    /**
+     * Returns a borrowed session to its pool after resetting it.
+     * Sessions that fail to reset or reached {@link #MAX_USES} are quit.
+     *
+     * @param driver the session obtained from {@link #borrow(String, Supplier)}
+     */
+    public static void release(WebDriver driver) {
+        PooledSession session = borrowed.remove(driver);
+        if (session == null) {
+            NetworkMonitor.detach(driver);
+            driver.quit();
+            return;
+        }
+        session.pool.giveBack(session);
+    }
+
+    /**
+     * Quits a borrowed session without returning it, e.g. when the test left the browser unusable.
+     *
+     * @param driver the session obtained from {@link #borrow(String, Supplier)}
+     */
+    public static void discard(WebDriver driver) {
+        PooledSession session = borrowed.remove(driver);
+        if (session == null) {
+            NetworkMonitor.detach(driver);
+            driver.quit();
+            return;
+        }
+        session.pool.destroy(session);
+    }
+
+    /**
+     * Launches sessions for the given key in parallel so that the first tests find them ready.
+     *
+     * @param key     the browser type and capabilities of the sessions
+     * @param factory launches a new session
+     * @param count   number of sessions to launch, capped at {@link #POOL_SIZE}
+     */
+    public static void warmUp(String key, Supplier<WebDriver> factory, int count) {
+        DriverPool pool = pools.computeIfAbsent(key, k -> new DriverPool(k, factory));
+        List<Thread> launchers = new ArrayList<Thread>();
+        for (int i = 0; i < Math.min(count, POOL_SIZE); i++) {
+            Thread launcher = new Thread(() -> {
+                PooledSession session = pool.take();
+                pool.giveBack(session);
+            }, "driver-pool-warmup-" + i);
+            launcher.start();
+            launchers.add(launcher);
+        }
+        for (Thread launcher : launchers) {
+            try {
+                launcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Quits every idle session of every pool. Borrowed sessions are quit when they are released.
+     */
+    public static void shutdown() {
+        for (DriverPool pool : pools.values()) {
+            PooledSession session;
+            while ((session = pool.idle.pollFirst()) != null) {
+                pool.destroy(session);
+            }
+        }
+    }
+
+    private PooledSession take() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while waiting for a browser session: " + key, e);
+        }
+        PooledSession session = idle.pollFirst();
+        if (session != null) {
+            return session;
+        }
+        try {
+            return new PooledSession(this, factory.get());
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void giveBack(PooledSession session) {
+        session.uses++;
+        if (session.uses >= MAX_USES || !reset(session.driver)) {
+            destroy(session);
+            return;
+        }
+        idle.offerFirst(session);
+        permits.release();
+    }
+
+    private void destroy(PooledSession session) {
+        try {
+            NetworkMonitor.detach(session.driver);
+            session.driver.quit();
+        } catch (WebDriverException e) {
+            // The browser is already gone; nothing left to clean up
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Brings a session back to a blank state: one window showing about:blank, no cookies, no web
+     * storage.
+     *
+     * <p>Web storage is cleared for the origin of every open window. On Chrome and Edge the origins'
+     * other site data (IndexedDB, Cache Storage, service workers) is also cleared through CDP,
+     * after the window has left the page, so unload handlers cannot write it again. Storage of an
+     * origin the test visited but no longer shows is not reached; tests that need full isolation
+     * run with {@code EXECUTION_MODE=context} or {@code SESSION_MAX_USES=1}.</p>
+     *
+     * @return {@code false} if the browser did not respond and the session must be recycled
+     */
+    private static boolean reset(WebDriver driver) {
+        try {
+            List<String> handles = new ArrayList<String>(driver.getWindowHandles());
+            Collections.reverse(handles);
+            Set<String> origins = new LinkedHashSet<String>();
+            for (int i = 0; i < handles.size(); i++) {
+                driver.switchTo().window(handles.get(i));
+                Object origin = ((JavascriptExecutor) driver).executeScript(
+                        "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}"
+                        + "return window.location.origin;");
+                if (origin instanceof String && ((String) origin).startsWith("http")) {
+                    origins.add((String) origin);
+                }
+                if (i < handles.size() - 1) {
+                    driver.close();
+                }
+            }
+            driver.get("about:blank");
+            if (driver instanceof HasCdp) {
+                HasCdp cdp = (HasCdp) driver;
+                for (String origin : origins) {
+                    Map<String, Object> params = new HashMap<String, Object>();
+                    params.put("origin", origin);
+                    params.put("storageTypes", "all");
+                    cdp.executeCdpCommand("Storage.clearDataForOrigin", params);
+                }
+                cdp.executeCdpCommand("Network.clearBrowserCookies", Collections.emptyMap());
+            } else {
+                driver.manage().deleteAllCookies();
+            }
+            return true;
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    /** A live browser session together with its usage counter. */
+    private static class PooledSession {
+        private final DriverPool pool;
+        private final WebDriver driver;
+        private int uses;
+
+        private PooledSession(DriverPool pool, WebDriver driver) {
+            this.pool = pool;
+            this.driver = driver;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.creatio.framework.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.creatio.framework.utilities.ConfigService;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.bidi.Event;
+import org.openqa.selenium.bidi.HasBiDi;
+import org.openqa.selenium.bidi.module.Network;
+import org.openqa.selenium.bidi.network.AddInterceptParameters;
+import org.openqa.selenium.bidi.network.ContinueRequestParameters;
+import org.openqa.selenium.bidi.network.InterceptPhase;
+import org.openqa.selenium.bidi.network.UrlPattern;
+import org.openqa.selenium.chromium.ChromiumOptions;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.json.JsonInput;
+
+/**
+ * Describes how a browser is launched: headless or headed, window size, and which requests are blocked.
+ *
+ * <p>Values come from {@code Config.properties} and can be overridden per suite with TestNG
+ * {@code <parameter>} entries of the same name:</p>
+ * <ul>
+ *     <li>{@code HEADLESS} - {@code true} to launch without a visible window</li>
+ *     <li>{@code WINDOW_SIZE} - fixed size such as {@code 1920x1080}; empty to maximize</li>
+ *     <li>{@code BLOCK_RESOURCE_TYPES} - comma separated list of {@code image}, {@code font}, {@code media}</li>
+ *     <li>{@code BLOCK_URL_PATTERNS} - comma separated URL patterns with {@code *} wildcards,
+ *         e.g. {@code *googletagmanager.com*}; over BiDi, patterns naming a single host such as
+ *         {@code *://www.googletagmanager.com/*} are matched by the browser, any other pattern
+ *         makes every request wait for a check on the client</li>
+ *     <li>{@code ENABLE_BIDI} - {@code true} to open a WebDriver BiDi connection, needed for
+ *         per-navigation page-load strategies and network-idle waits</li>
+ * </ul>
+ *
+ * <p>Firefox blocks resource types through preferences. Chrome and Edge block images through a
+ * preference and fonts and media by the request's resource type. Requests are blocked through a
+ * WebDriver BiDi network intercept, which covers every tab of the browser, when the session has
+ * a BiDi connection; otherwise Chrome and Edge use the CDP {@code Fetch} domain on the session's
+ * window.</p>
+ */
+public class LaunchProfile {
+
+    /** CDP {@code Network.ResourceType} of each blockable type. */
+    private static final Map<String, String> CDP_RESOURCE_TYPES = new HashMap<String, String>();
+
+    /** BiDi request {@code destination} values of each blockable type. */
+    private static final Map<String, List<String>> DESTINATIONS = new HashMap<String, List<String>>();
+
+    static {
+        CDP_RESOURCE_TYPES.put("image", "Image");
+        CDP_RESOURCE_TYPES.put("font", "Font");
+        CDP_RESOURCE_TYPES.put("media", "Media");
+        DESTINATIONS.put("image", Arrays.asList("image"));
+        DESTINATIONS.put("font", Arrays.asList("font"));
+        DESTINATIONS.put("media", Arrays.asList("audio", "video", "track"));
+    }
+
+    /** {@code BLOCK_URL_PATTERNS} entry that names one host, e.g. {@code *://www.googletagmanager.com/*}. */
+    private static final Pattern HOST_GLOB = Pattern.compile("(\\*|https?)://([^/*:?]+)(?::(\\d+))?/\\*");
+
+    private static final Pattern WINDOW_SIZE = Pattern.compile("(\\d+)\\s*[xX]\\s*(\\d+)");
+
+    private static final org.openqa.selenium.devtools.Event<String> REQUEST_PAUSED =
+            new org.openqa.selenium.devtools.Event<String>("Fetch.requestPaused", LaunchProfile::requestId);
+
+    private static final Event<Map<String, Object>> BEFORE_REQUEST_SENT =
+            new Event<Map<String, Object>>("network.beforeRequestSent", params -> params);
+
+    private final boolean headless;
+    private final boolean biDi;
+    private final Dimension windowSize;
+    private final Set<String> blockedTypes;
+    private final List<String> blockedPatterns;
+
+    private LaunchProfile(boolean headless, boolean biDi, Dimension windowSize, Set<String> blockedTypes, List<String> blockedPatterns) {
+        this.headless = headless;
+        this.biDi = biDi;
+        this.windowSize = windowSize;
+        this.blockedTypes = Collections.unmodifiableSet(blockedTypes);
+        this.blockedPatterns = Collections.unmodifiableList(blockedPatterns);
+    }
+
+    /**
+     * Builds the profile defined in {@code Config.properties}.
+     *
+     * @return the default launch profile
+     */
+    public static LaunchProfile fromConfig() {
+        return from(Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Builds a profile from {@code Config.properties}, overridden by the given suite parameters.
+     *
+     * @param parameters TestNG suite/test parameters; keys match the {@code Config.properties} names
+     * @return the resulting launch profile
+     */
+    public static LaunchProfile from(Map<String, String> parameters) {
+        boolean headless = Boolean.parseBoolean(value(parameters, "HEADLESS", "false"));
+        boolean biDi = Boolean.parseBoolean(value(parameters, "ENABLE_BIDI", "false"));
+        Dimension windowSize = null;
+        String size = value(parameters, "WINDOW_SIZE", "");
+        if (!size.isEmpty()) {
+            Matcher parts = WINDOW_SIZE.matcher(size);
+            if (!parts.matches()) {
+                throw new IllegalArgumentException("WINDOW_SIZE must be <width>x<height>, e.g. 1920x1080: " + size);
+            }
+            windowSize = new Dimension(Integer.parseInt(parts.group(1)), Integer.parseInt(parts.group(2)));
+        }
+        Set<String> types = new LinkedHashSet<String>();
+        for (String type : split(value(parameters, "BLOCK_RESOURCE_TYPES", ""))) {
+            if (!CDP_RESOURCE_TYPES.containsKey(type.toLowerCase())) {
+                throw new IllegalArgumentException("Unsupported resource type to block: " + type);
+            }
+            types.add(type.toLowerCase());
+        }
+        List<String> patterns = split(value(parameters, "BLOCK_URL_PATTERNS", ""));
+        return new LaunchProfile(headless, biDi, windowSize, types, patterns);
+    }
+
+    /**
+     * Returns a stable description of this profile, used to tell apart pooled sessions.
+     *
+     * @return the profile key
+     */
+    public String key() {
+        return "headless=" + headless + ";bidi=" + biDi + ";size=" + windowSize + ";types=" + blockedTypes + ";urls=" + blockedPatterns;
+    }
+
+    /**
+     * @param firefox {@code true} when launching Firefox, which blocks URL patterns through BiDi
+     * @return {@code true} if the session needs a BiDi connection
+     */
+    boolean needsBiDi(boolean firefox) {
+        return biDi || (firefox && !blockedPatterns.isEmpty());
+    }
+
+    /**
+     * Applies launch arguments and preferences to Chrome or Edge options.
+     *
+     * @param options the options used to start the browser
+     */
+    void applyTo(ChromiumOptions<?> options) {
+        if (headless) {
+            options.addArguments("--headless=new");
+        }
+        if (windowSize != null) {
+            options.addArguments("--window-size=" + windowSize.getWidth() + "," + windowSize.getHeight());
+        }
+        if (blockedTypes.contains("image")) {
+            Map<String, Object> prefs = new HashMap<String, Object>();
+            prefs.put("profile.managed_default_content_settings.images", 2);
+            options.setExperimentalOption("prefs", prefs);
+        }
+    }
+
+    /**
+     * Applies launch arguments and preferences to Firefox options.
+     *
+     * @param options the options used to start the browser
+     */
+    void applyTo(FirefoxOptions options) {
+        if (headless) {
+            options.addArguments("-headless");
+        }
+        if (windowSize != null) {
+            options.addArguments("-width", String.valueOf(windowSize.getWidth()), "-height", String.valueOf(windowSize.getHeight()));
+        }
+        if (blockedTypes.contains("image")) {
+            options.addPreference("permissions.default.image", 2);
+        }
+        if (blockedTypes.contains("font")) {
+            options.addPreference("gfx.downloadable_fonts.enabled", false);
+        }
+        if (blockedTypes.contains("media")) {
+            options.addPreference("media.autoplay.default", 5);
+            options.addPreference("media.mediasource.enabled", false);
+        }
+    }
+
+    /**
+     * Sizes the window and installs request blocking on a freshly started session.
+     *
+     * @param driver the new session
+     */
+    void applyTo(WebDriver driver) {
+        if (windowSize != null) {
+            driver.manage().window().setSize(windowSize);
+        } else if (!headless) {
+            driver.manage().window().maximize();
+        }
+        // Firefox blocks every type, and Chromium images, through preferences set at launch
+        Set<String> types = new LinkedHashSet<String>();
+        if (driver instanceof HasCdp) {
+            types.addAll(blockedTypes);
+            types.remove("image");
+        }
+        if (types.isEmpty() && blockedPatterns.isEmpty()) {
+            return;
+        }
+        if (driver instanceof HasBiDi && ((HasBiDi) driver).maybeGetBiDi().isPresent()) {
+            blockWithBiDi(driver, types);
+        } else if (driver instanceof HasDevTools) {
+            blockWithFetch(((HasDevTools) driver).getDevTools(), types);
+        }
+    }
+
+    /**
+     * Blocks requests of the window the session points at with the CDP Fetch domain: the browser
+     * pauses only requests of a blocked resource type or URL, and each is failed as it arrives.
+     */
+    private void blockWithFetch(DevTools devTools, Set<String> types) {
+        List<Map<String, Object>> patterns = new ArrayList<Map<String, Object>>();
+        for (String type : types) {
+            patterns.add(requestPattern("resourceType", CDP_RESOURCE_TYPES.get(type)));
+        }
+        for (String url : blockedPatterns) {
+            patterns.add(requestPattern("urlPattern", url));
+        }
+        devTools.createSessionIfThereIsNotOne();
+        devTools.addListener(REQUEST_PAUSED, requestId -> {
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("requestId", requestId);
+            params.put("errorReason", "BlockedByClient");
+            devTools.send(new Command<Void>("Fetch.failRequest", params));
+        });
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("patterns", patterns);
+        devTools.send(new Command<Void>("Fetch.enable", params));
+    }
+
+    /**
+     * Blocks requests of every tab with a WebDriver BiDi network intercept, so tabs opened later,
+     * e.g. for other user contexts, are covered too. When every URL pattern names a host, the
+     * browser only pauses requests to those hosts; otherwise every request is paused and matched
+     * here. Resource types are recognised by the request's {@code destination}.
+     */
+    private void blockWithBiDi(WebDriver driver, Set<String> types) {
+        List<Pattern> regexes = new ArrayList<Pattern>();
+        for (String pattern : blockedPatterns) {
+            regexes.add(Pattern.compile(("\\Q" + pattern + "\\E").replace("*", "\\E.*\\Q")));
+        }
+        Set<String> destinations = new HashSet<String>();
+        for (String type : types) {
+            destinations.addAll(DESTINATIONS.get(type));
+        }
+        AddInterceptParameters parameters = new AddInterceptParameters(InterceptPhase.BEFORE_REQUEST_SENT);
+        List<UrlPattern> hosts = types.isEmpty() ? hostPatterns(blockedPatterns) : null;
+        if (hosts != null) {
+            parameters.urlPatterns(hosts);
+        }
+        Network network = new Network(driver);
+        String intercept = network.addIntercept(parameters);
+        ((HasBiDi) driver).getBiDi().addListener(BEFORE_REQUEST_SENT, event -> {
+            Object intercepts = event.get("intercepts");
+            if (!Boolean.TRUE.equals(event.get("isBlocked")) || !(intercepts instanceof List) || !((List<?>) intercepts).contains(intercept)) {
+                return;
+            }
+            Map<?, ?> request = (Map<?, ?>) event.get("request");
+            String requestId = String.valueOf(request.get("request"));
+            String url = String.valueOf(request.get("url"));
+            if (destinations.contains(request.get("destination")) || regexes.stream().anyMatch(r -> r.matcher(url).matches())) {
+                network.failRequest(requestId);
+            } else {
+                network.continueRequest(new ContinueRequestParameters(requestId));
+            }
+        });
+    }
+
+    /**
+     * @return a BiDi URL pattern per glob, or {@code null} if a glob is not of the form
+     *         {@code *://host/*} or {@code https://host/*} and cannot be matched by the browser
+     */
+    private static List<UrlPattern> hostPatterns(List<String> globs) {
+        List<UrlPattern> patterns = new ArrayList<UrlPattern>();
+        for (String glob : globs) {
+            Matcher matcher = HOST_GLOB.matcher(glob);
+            if (!matcher.matches()) {
+                return null;
+            }
+            UrlPattern pattern = new UrlPattern().hostname(matcher.group(2));
+            if (!"*".equals(matcher.group(1))) {
+                pattern.protocol(matcher.group(1));
+            }
+            if (matcher.group(3) != null) {
+                pattern.port(matcher.group(3));
+            }
+            patterns.add(pattern);
+        }
+        return patterns;
+    }
+
+    private static Map<String, Object> requestPattern(String key, String value) {
+        Map<String, Object> pattern = new HashMap<String, Object>();
+        pattern.put(key, value);
+        pattern.put("requestStage", "Request");
+        return pattern;
+    }
+
+    /** Reads the request id of a {@code Fetch.requestPaused} event. */
+    private static String requestId(JsonInput input) {
+        String requestId = null;
+        input.beginObject();
+        while (input.hasNext()) {
+            if ("requestId".equals(input.nextName())) {
+                requestId = input.nextString();
+            } else {
+                input.skipValue();
+            }
+        }
+        input.endObject();
+        return requestId;
+    }
+
+    private static String value(Map<String, String> parameters, String name, String defaultValue) {
+        String value = parameters.get(name);
+        if (value == null) {
+            value = ConfigService.current().get(name, defaultValue);
+        }
+        return value.trim();
+    }
+
+    private static List<String> split(String value) {
+        List<String> items = new ArrayList<String>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+}
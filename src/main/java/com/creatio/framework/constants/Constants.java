@@ -4,4 +4,6 @@ public class Constants {
 
     public static final int WAIT_TIME = 30; // Default wait time for elements to be visible
 
+    public static final int SCRIPT_TIME = WAIT_TIME + 10; // Script timeout, must outlast in-browser waits
+
 }
\ No newline at end of file
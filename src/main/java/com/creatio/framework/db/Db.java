@@ -0,0 +1,203 @@
+package com.creatio.framework.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.creatio.framework.utilities.ConfigService;
+
+/**
+ * Queries and updates against one database, on connections from a {@link DbPool}.
+ *
+ * <p>Every call borrows a pooled connection for its duration only, so parallel workers share
+ * {@code DB_POOL_SIZE} connections instead of opening their own. Parameters are bound with
+ * {@link PreparedStatement#setObject(int, Object)}. {@link #get()} works on the database of
+ * {@code DB_URL}; {@code new Db(pool)} on any other pool, e.g. a local instance.</p>
+ *
+ * <pre>
+ * Db.get().batch("INSERT INTO customer (first_name, last_name, email) VALUES (?, ?, ?)", customers);
+ * String email = Db.get().queryOne("SELECT email FROM customer WHERE customer_id = ?", rs -&gt; rs.getString(1), 42);
+ * long rows = new Db(localPool).stream("SELECT * FROM rental", rs -&gt; verify(rs));
+ * </pre>
+ */
+public class Db {
+
+    /** Rows per batch round trip of {@link #batch(String, Iterable)}. */
+    private static final int BATCH_SIZE = ConfigService.current().getInt("DB_BATCH_SIZE", 1000);
+
+    /** Rows fetched per round trip by {@link #stream(String, RowHandler, Object...)}. */
+    private static final int FETCH_SIZE = ConfigService.current().getInt("DB_FETCH_SIZE", 500);
+
+    /** Maps the current row of a result set to an object. */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet row) throws SQLException;
+    }
+
+    /** Receives the current row of a result set. */
+    @FunctionalInterface
+    public interface RowHandler {
+        void handle(ResultSet row) throws SQLException;
+    }
+
+    private static Db instance;
+
+    private final DbPool pool;
+
+    /**
+     * @param pool the pool to borrow connections from; closing it is up to the caller
+     */
+    public Db(DbPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return the database of {@code DB_URL}, on the pool of {@link DbPool#get()}
+     * @throws IllegalStateException if {@code DB_URL} is not configured
+     */
+    public static synchronized Db get() {
+        if (instance == null) {
+            instance = new Db(DbPool.get());
+        }
+        return instance;
+    }
+
+    /**
+     * Runs a query and maps every row.
+     *
+     * @param sql    the query, with {@code ?} placeholders
+     * @param mapper maps one row
+     * @param params the placeholder values
+     * @return the mapped rows, in result order
+     * @throws SQLException if the query fails
+     */
+    public <T> List<T> query(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (Connection connection = pool.getConnection();
+                PreparedStatement statement = prepare(connection, sql, params);
+                ResultSet rows = statement.executeQuery()) {
+            List<T> result = new ArrayList<T>();
+            while (rows.next()) {
+                result.add(mapper.map(rows));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Runs a query and maps its first row.
+     *
+     * @param sql    the query, with {@code ?} placeholders
+     * @param mapper maps the row
+     * @param params the placeholder values
+     * @return the mapped first row, or {@code null} if there is none
+     * @throws SQLException if the query fails
+     */
+    public <T> T queryOne(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (Connection connection = pool.getConnection();
+                PreparedStatement statement = prepare(connection, sql, params)) {
+            statement.setMaxRows(1);
+            try (ResultSet rows = statement.executeQuery()) {
+                return rows.next() ? mapper.map(rows) : null;
+            }
+        }
+    }
+
+    /**
+     * Runs a query and hands each row to a handler as it arrives, without holding the result in
+     * memory. The driver fetches {@code DB_FETCH_SIZE} rows per round trip; the query runs in a
+     * transaction because PostgreSQL only uses a cursor outside auto-commit.
+     *
+     * @param sql     the query, with {@code ?} placeholders
+     * @param handler receives each row; it must not keep the {@link ResultSet}
+     * @param params  the placeholder values
+     * @return the number of rows
+     * @throws SQLException if the query or the handler fails
+     */
+    public long stream(String sql, RowHandler handler, Object... params) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = prepare(connection, sql, params)) {
+                statement.setFetchSize(FETCH_SIZE);
+                long count = 0;
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        handler.handle(rows);
+                        count++;
+                    }
+                }
+                connection.commit();
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Runs an {@code INSERT}, {@code UPDATE}, {@code DELETE} or DDL statement.
+     *
+     * @param sql    the statement, with {@code ?} placeholders
+     * @param params the placeholder values
+     * @return the number of rows changed
+     * @throws SQLException if the statement fails
+     */
+    public int update(String sql, Object... params) throws SQLException {
+        try (Connection connection = pool.getConnection();
+                PreparedStatement statement = prepare(connection, sql, params)) {
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Runs one statement for many rows of parameters, e.g. to seed test data, in a single
+     * transaction. Rows are sent in batches of {@code DB_BATCH_SIZE}; with the pool's
+     * {@code reWriteBatchedInserts} the driver turns each batch of a single-row {@code INSERT}
+     * into multi-row inserts, so a batch costs one round trip. If any row fails, nothing is kept.
+     *
+     * @param sql  the statement, with {@code ?} placeholders
+     * @param rows the placeholder values of each row; read once, so it may be a lazy source
+     * @return the number of rows sent
+     * @throws SQLException if a batch fails
+     */
+    public int batch(String sql, Iterable<Object[]> rows) throws SQLException {
+        try (Connection connection = pool.getConnection()) {
+            connection.setAutoCommit(false);
+            int count = 0;
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int pending = 0;
+                for (Object[] row : rows) {
+                    bind(statement, row);
+                    statement.addBatch();
+                    count++;
+                    if (++pending == BATCH_SIZE) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+            }
+            connection.commit();
+            return count;
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, String sql, Object[] params) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        try {
+            bind(statement, params);
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    private static void bind(PreparedStatement statement, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
+        }
+    }
+}
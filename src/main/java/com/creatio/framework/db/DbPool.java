@@ -0,0 +1,327 @@
+package com.creatio.framework.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import com.creatio.framework.utilities.ConfigService;
+import com.creatio.framework.utilities.ConfigSnapshot;
+
+/**
+ * Bounded pool of PostgreSQL connections shared by all test threads.
+ *
+ * <p>{@link #getConnection()} hands out a connection whose {@code close()} gives it back to the
+ * pool instead of closing it; use it in try-with-resources. At most {@code DB_POOL_SIZE}
+ * connections (default 4) exist at once, and a caller waits up to {@code DB_POOL_TIMEOUT} seconds
+ * (default 30) for one to be returned. Returned connections are rolled back if a transaction is
+ * still open and set back to auto-commit, and statements the borrower left open are closed. If the
+ * borrower changed session state (read-only, isolation, schema, or any {@code SET}), read-only and
+ * isolation are restored and {@code RESET ALL} is run. A connection idle for more than 30 seconds is checked
+ * before it is handed out again, and replaced if the server dropped it.</p>
+ *
+ * <p>Connections are opened with driver settings suited to repeated test queries:</p>
+ * <ul>
+ *     <li>{@code prepareThreshold} ({@code DB_PREPARE_THRESHOLD}, default 1) - a statement is
+ *         prepared on the server from its first execution; because physical connections are reused,
+ *         the driver's per-connection statement cache serves later executions of the same SQL from
+ *         any thread</li>
+ *     <li>{@code preparedStatementCacheQueries} ({@code DB_STATEMENT_CACHE}, default 256)</li>
+ *     <li>{@code reWriteBatchedInserts=true} - a batch of single-row {@code INSERT}s is sent as
+ *         multi-row inserts, see {@link Db#batch(String, Iterable)}</li>
+ * </ul>
+ *
+ * <p>{@link #get()} returns the pool for {@code DB_URL}, {@code DB_USER} and {@code DB_PASS}; a
+ * pool for another database, e.g. a local instance, can be created with the constructor and used
+ * through {@link Db#Db(DbPool)}.</p>
+ *
+ * <p>Statements and metadata created on a borrowed connection return that borrowed connection
+ * from {@code getConnection()}, so closing it from there also gives it back to the pool.</p>
+ */
+public class DbPool implements AutoCloseable {
+
+    /** Idle time after which a connection is validated before reuse. */
+    private static final long VALIDATE_AFTER_MILLIS = 30000;
+
+    /** Connection methods that change session state, which is reset when the connection is returned. */
+    private static final Set<String> SESSION_METHODS = new HashSet<String>(Arrays.asList("setReadOnly",
+            "setTransactionIsolation", "setSchema", "setCatalog"));
+
+    /** SQL that changes session settings. */
+    private static final Pattern SESSION_SQL = Pattern.compile("^\\s*(SET|RESET)\\s|\\bset_config\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+    private static DbPool instance;
+
+    private final String url;
+    private final Properties properties = new Properties();
+    private final int size;
+    private final long timeoutSeconds;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<Physical> idle = new LinkedBlockingDeque<Physical>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool using the driver settings and limits from {@code Config.properties}.
+     *
+     * @param url      the JDBC URL, e.g. {@code jdbc:postgresql://localhost:5432/dvdshop}
+     * @param user     the database user
+     * @param password the password
+     */
+    public DbPool(String url, String user, String password) {
+        ConfigSnapshot config = ConfigService.current();
+        this.url = url;
+        this.size = config.getInt("DB_POOL_SIZE", 4);
+        this.timeoutSeconds = config.getLong("DB_POOL_TIMEOUT", 30);
+        this.permits = new Semaphore(size, true);
+        if (user != null) {
+            properties.setProperty("user", user);
+        }
+        if (password != null) {
+            properties.setProperty("password", password);
+        }
+        properties.setProperty("prepareThreshold", config.get("DB_PREPARE_THRESHOLD", "1"));
+        properties.setProperty("preparedStatementCacheQueries", config.get("DB_STATEMENT_CACHE", "256"));
+        properties.setProperty("reWriteBatchedInserts", "true");
+        properties.setProperty("ApplicationName", "CreatioAutomate");
+    }
+
+    /**
+     * @return the pool for {@code DB_URL}, created on first use and closed when the JVM exits
+     * @throws IllegalStateException if {@code DB_URL} is not configured
+     */
+    public static synchronized DbPool get() {
+        if (instance == null) {
+            ConfigSnapshot config = ConfigService.current();
+            String url = config.get("DB_URL");
+            if (url == null || url.isEmpty()) {
+                throw new IllegalStateException("DB_URL is not configured");
+            }
+            DbPool pool = new DbPool(url, config.get("DB_USER"), config.get("DB_PASS"));
+            Runtime.getRuntime().addShutdownHook(new Thread(pool::close, "db-pool-shutdown"));
+            instance = pool;
+        }
+        return instance;
+    }
+
+    /**
+     * Borrows a connection, opening a new one only when none is idle.
+     * Blocks while {@code DB_POOL_SIZE} connections are in use.
+     *
+     * @return a connection owned by the caller until it is closed
+     * @throws SQLException if no connection becomes free within {@code DB_POOL_TIMEOUT} seconds
+     *                      or a new one cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool for " + url + " is closed");
+        }
+        try {
+            if (!permits.tryAcquire(timeoutSeconds, TimeUnit.SECONDS)) {
+                throw new SQLException("No database connection became free within " + timeoutSeconds
+                        + "s; all " + size + " are in use (DB_POOL_SIZE)", "08001");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        try {
+            Physical physical;
+            while ((physical = idle.pollFirst()) != null) {
+                if (System.currentTimeMillis() - physical.returnedAt < VALIDATE_AFTER_MILLIS || physical.connection.isValid(5)) {
+                    return wrap(physical);
+                }
+                quietlyClose(physical.connection);
+            }
+            Connection opened = DriverManager.getConnection(url, properties);
+            try {
+                return wrap(new Physical(opened));
+            } catch (SQLException | RuntimeException e) {
+                quietlyClose(opened);
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes every idle connection and refuses further borrowing. Borrowed connections are closed
+     * when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Physical physical;
+        while ((physical = idle.pollFirst()) != null) {
+            quietlyClose(physical.connection);
+        }
+    }
+
+    private Connection wrap(Physical physical) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                new Borrowed(physical));
+    }
+
+    private void giveBack(Physical physical, boolean sessionChanged) {
+        try {
+            if (closed || physical.connection.isClosed()) {
+                quietlyClose(physical.connection);
+                return;
+            }
+            if (!physical.connection.getAutoCommit()) {
+                physical.connection.rollback();
+                physical.connection.setAutoCommit(true);
+            }
+            if (sessionChanged) {
+                physical.connection.setReadOnly(physical.readOnly);
+                physical.connection.setTransactionIsolation(physical.isolation);
+                try (Statement reset = physical.connection.createStatement()) {
+                    // Puts search_path and every other SET back to the server defaults; prepared statements stay
+                    reset.execute("RESET ALL");
+                }
+            }
+            physical.connection.clearWarnings();
+            physical.returnedAt = System.currentTimeMillis();
+            idle.offerFirst(physical);
+        } catch (SQLException e) {
+            // A connection that cannot be reset is not safe to hand out again
+            quietlyClose(physical.connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static void quietlyClose(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** @return {@code true} if the SQL changes session settings, e.g. {@code SET search_path} */
+    private static boolean changesSession(Object sql) {
+        return sql instanceof String && SESSION_SQL.matcher((String) sql).find();
+    }
+
+    /** A connection to the server, its settings as opened and the time it was last returned. */
+    private static final class Physical {
+        private final Connection connection;
+        private final boolean readOnly;
+        private final int isolation;
+        private long returnedAt;
+
+        private Physical(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.readOnly = connection.isReadOnly();
+            this.isolation = connection.getTransactionIsolation();
+            this.returnedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * The view of a pooled connection held by one borrower; closing it closes the statements the
+     * borrower left open and returns the connection.
+     */
+    private final class Borrowed implements InvocationHandler {
+        private final Physical physical;
+        private final Set<Statement> statements = Collections.newSetFromMap(new IdentityHashMap<Statement, Boolean>());
+        private boolean sessionChanged;
+        private boolean returned;
+
+        private Borrowed(Physical physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        for (Statement statement : statements) {
+                            quietlyClose(statement);
+                        }
+                        statements.clear();
+                        giveBack(physical, sessionChanged);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + physical.connection;
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    if (SESSION_METHODS.contains(method.getName()) || (args != null && args.length > 0 && changesSession(args[0]))) {
+                        sessionChanged = true;
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(physical.connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Statement) {
+                        statements.add((Statement) result);
+                    }
+                    if (result instanceof Statement || result instanceof DatabaseMetaData) {
+                        return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {method.getReturnType()},
+                                new Created(result, (Connection) proxy, this));
+                    }
+                    return result;
+            }
+        }
+    }
+
+    /** A statement or metadata object of a borrowed connection, which answers with that connection. */
+    private static final class Created implements InvocationHandler {
+        private final Object target;
+        private final Connection borrowed;
+        private final Borrowed owner;
+
+        private Created(Object target, Connection borrowed, Borrowed owner) {
+            this.target = target;
+            this.borrowed = borrowed;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("getConnection".equals(method.getName()) && method.getParameterCount() == 0) {
+                return borrowed;
+            }
+            if ("close".equals(method.getName())) {
+                owner.statements.remove(target);
+            } else if (args != null && args.length > 0 && changesSession(args[0])) {
+                owner.sessionChanged = true;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
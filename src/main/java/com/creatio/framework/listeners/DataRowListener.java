@@ -0,0 +1,79 @@
+package com.creatio.framework.listeners;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.creatio.framework.utilities.ConfigService;
+import org.testng.IAlterSuiteListener;
+import org.testng.IDataProviderInterceptor;
+import org.testng.IDataProviderMethod;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.xml.XmlSuite;
+
+/**
+ * Runs the rows of data-driven tests side by side and, on a sharded run, splits them over the shards.
+ *
+ * <p>Rows of a {@code @DataProvider(parallel = true)} run on a pool of {@code DATA_ROW_THREADS}
+ * threads (default 4), separate from the suite's {@code thread-count}. Each row keeps its thread
+ * from {@code @BeforeMethod} to {@code @AfterMethod}, so it gets its own browser session from
+ * {@code BasePage}; the report shows every row as a node under its method.</p>
+ *
+ * <p>With {@code ROW_SHARDING=true} (default) and {@code -Dshard.count} above 1,
+ * {@link ShardSelector} sends a data-driven method to every shard and this listener keeps every
+ * {@code shard.count}-th row, starting at row {@code shard.index}. A sheet with many rows is then
+ * spread over all agents instead of running on one. The deferred reruns of
+ * {@link RetryListener} are not split again.</p>
+ */
+public class DataRowListener implements IAlterSuiteListener, IDataProviderInterceptor {
+
+	private static final int THREADS = ConfigService.current().getInt("DATA_ROW_THREADS", 4);
+
+	/** {@code true} if data-driven methods are split over the shards row by row. */
+	static final boolean ROW_SHARDING = ConfigService.current().getBoolean("ROW_SHARDING", true);
+
+	@Override
+	public void alter(List<XmlSuite> suites) {
+		for (XmlSuite suite : suites) {
+			if (THREADS > 0) {
+				suite.setDataProviderThreadCount(THREADS);
+			}
+		}
+	}
+
+	@Override
+	public Iterator<Object[]> intercept(Iterator<Object[]> original, IDataProviderMethod dataProviderMethod,
+			ITestNGMethod method, ITestContext context) {
+		int count = Integer.getInteger("shard.count", 1);
+		int index = Integer.getInteger("shard.index", 1);
+		if (!ROW_SHARDING || count <= 1 || RetryListener.isRerun(context)) {
+			return original;
+		}
+		return new Iterator<Object[]>() {
+			private int row;
+			private Object[] next;
+
+			@Override
+			public boolean hasNext() {
+				while (next == null && original.hasNext()) {
+					Object[] candidate = original.next();
+					if (row++ % count == index - 1) {
+						next = candidate;
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public Object[] next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Object[] selected = next;
+				next = null;
+				return selected;
+			}
+		};
+	}
+}
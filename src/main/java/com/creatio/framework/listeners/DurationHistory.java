@@ -0,0 +1,209 @@
+package com.creatio.framework.listeners;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.creatio.framework.utilities.ConfigService;
+import org.testng.ITestNGMethod;
+
+/**
+ * Local record of how long each test method took in earlier runs.
+ *
+ * <p>Durations are kept per {@code Class#method} in {@code <TEST_HISTORY_DIR>/durations.properties}
+ * as {@code average,lastUpdate} pairs. The average weighs the latest run and the history equally,
+ * so one slow run moves the estimate without replacing it. Data-driven methods are stored as the total of all their
+ * invocations, the unit TestNG schedules.</p>
+ */
+public class DurationHistory {
+
+	/** Estimate used for every method when there is no history at all. */
+	private static final long DEFAULT_MILLIS = 30_000;
+
+	private static DurationHistory instance;
+	private static DurationHistory planning;
+
+	private final Path file;
+	private final Map<String, Long> averages = new ConcurrentHashMap<String, Long>();
+
+	/** When each average last changed, in epoch milliseconds; used to merge the histories of shards. */
+	private final Map<String, Long> updated = new ConcurrentHashMap<String, Long>();
+
+	/** Estimate for unknown methods, recomputed after the averages change. */
+	private volatile Long median;
+
+	/**
+	 * Loads a history file.
+	 *
+	 * @param file the {@code durations.properties} file; it does not have to exist yet
+	 */
+	public DurationHistory(Path file) {
+		this.file = file;
+		merge(file);
+	}
+
+	private DurationHistory(DurationHistory source) {
+		this.file = source.file;
+		this.averages.putAll(source.averages);
+		this.updated.putAll(source.updated);
+	}
+
+	/**
+	 * Takes over the averages of another history file that were updated more recently than ours,
+	 * e.g. from the shards of a sharded run.
+	 *
+	 * @param other a {@code durations.properties} file; ignored if it does not exist
+	 */
+	public void merge(Path other) {
+		if (!Files.isRegularFile(other)) {
+			return;
+		}
+		Properties stored = new Properties();
+		try (InputStream in = Files.newInputStream(other)) {
+			stored.load(in);
+			for (String key : stored.stringPropertyNames()) {
+				String[] value = stored.getProperty(key).trim().split(",");
+				long time = value.length > 1 ? Long.parseLong(value[1].trim()) : 0;
+				if (!averages.containsKey(key) || time > updated.getOrDefault(key, 0L)) {
+					averages.put(key, Long.parseLong(value[0].trim()));
+					updated.put(key, time);
+					median = null;
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return the history of this working directory, loaded on first use
+	 */
+	public static synchronized DurationHistory get() {
+		if (instance == null) {
+			String dir = ConfigService.current().get("TEST_HISTORY_DIR", "TestHistory");
+			instance = new DurationHistory(Paths.get(System.getProperty("user.dir"), dir, "durations.properties"));
+		}
+		return instance;
+	}
+
+	/**
+	 * Returns the durations to plan the current suite with: a copy of {@link #get()} taken when the
+	 * suite started (see {@link #startPlanning()}), or on first use. Ordering and sharding decisions
+	 * made at different times of a run therefore all see the same numbers.
+	 *
+	 * @return the history as it was at the start of the suite
+	 */
+	public static synchronized DurationHistory planning() {
+		if (planning == null) {
+			planning = get().copy();
+		}
+		return planning;
+	}
+
+	/**
+	 * Takes a fresh copy of the history for {@link #planning()}; called when a suite starts.
+	 */
+	public static synchronized void startPlanning() {
+		planning = get().copy();
+	}
+
+	/** @return an independent copy of the averages */
+	private DurationHistory copy() {
+		return new DurationHistory(this);
+	}
+
+	/**
+	 * @param method a test method
+	 * @return the key the method is stored under, {@code Class#method}
+	 */
+	public static String key(ITestNGMethod method) {
+		return method.getRealClass().getName() + "#" + method.getMethodName();
+	}
+
+	/**
+	 * @param key a {@link #key(ITestNGMethod) method key}
+	 * @return {@code true} if the method ran in an earlier run
+	 */
+	public boolean isKnown(String key) {
+		return averages.containsKey(key);
+	}
+
+	/**
+	 * Estimates the duration of a method; methods without history get the median of the known
+	 * durations, so new tests are neither scheduled first nor last.
+	 *
+	 * @param key a {@link #key(ITestNGMethod) method key}
+	 * @return the expected duration in milliseconds
+	 */
+	public long estimate(String key) {
+		Long average = averages.get(key);
+		return average != null ? average : median();
+	}
+
+	private long median() {
+		Long cached = median;
+		if (cached == null) {
+			List<Long> values = new ArrayList<Long>(averages.values());
+			Collections.sort(values);
+			cached = values.isEmpty() ? DEFAULT_MILLIS : values.get(values.size() / 2);
+			median = cached;
+		}
+		return cached;
+	}
+
+	/**
+	 * Folds the duration of the latest run into the average.
+	 *
+	 * @param key    a {@link #key(ITestNGMethod) method key}
+	 * @param millis the duration of the latest run
+	 */
+	public void record(String key, long millis) {
+		averages.merge(key, millis, (old, latest) -> (old + latest) / 2);
+		updated.put(key, System.currentTimeMillis());
+		median = null;
+	}
+
+	/**
+	 * Writes the history back to its file, replacing it atomically.
+	 */
+	public void save() {
+		save(file);
+	}
+
+	/**
+	 * Writes the history to a file, replacing it atomically.
+	 *
+	 * @param file the file to write
+	 */
+	public synchronized void save(Path file) {
+		Properties stored = new Properties();
+		for (Map.Entry<String, Long> e : averages.entrySet()) {
+			stored.setProperty(e.getKey(), e.getValue() + "," + updated.getOrDefault(e.getKey(), 0L));
+		}
+		Path temp = null;
+		try {
+			Files.createDirectories(file.getParent());
+			// Shards finishing together each write their own file; the last move wins
+			temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				stored.store(out, "Average test duration in milliseconds, last update in epoch milliseconds");
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+			if (temp != null) {
+				temp.toFile().delete();
+			}
+		}
+	}
+}
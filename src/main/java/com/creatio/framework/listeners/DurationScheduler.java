@@ -0,0 +1,124 @@
+package com.creatio.framework.listeners;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.creatio.framework.reports.Reports;
+import com.creatio.framework.utilities.ConfigService;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+import org.testng.xml.XmlTest;
+
+/**
+ * Orders test methods longest first, using the durations of earlier runs.
+ *
+ * <p>TestNG hands free methods to its worker threads in the order returned by
+ * {@link #intercept(List, ITestContext)}, so each worker that becomes idle takes the longest test
+ * still waiting. This is the classic longest-processing-time packing: the suite ends close to the
+ * total duration divided by the number of workers instead of waiting on one long test that was
+ * picked up last. Dependencies are still enforced by TestNG; declared priorities only break ties.</p>
+ *
+ * <p>Every {@code <test>} of the suite, and {@link ShardSelector}, plans with the copy of
+ * {@link DurationHistory} taken when the suite starts. The durations measured during the run are
+ * recorded and saved once, when the suite ends. Register it in the suite file next to
+ * {@link TestListeners}; switch it off with {@code DURATION_SCHEDULING=false}.</p>
+ */
+public class DurationScheduler implements IMethodInterceptor, ITestListener, ISuiteListener {
+
+	private static final boolean ENABLED = ConfigService.current().getBoolean("DURATION_SCHEDULING", true);
+
+	/** Time spent in each method during this run, over all its invocations. */
+	private final Map<String, LongAdder> measured = new ConcurrentHashMap<String, LongAdder>();
+
+	@Override
+	public void onStart(ISuite suite) {
+		DurationHistory.startPlanning();
+	}
+
+	@Override
+	public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+		if (!ENABLED) {
+			return methods;
+		}
+		DurationHistory history = DurationHistory.planning();
+		List<IMethodInstance> ordered = new ArrayList<IMethodInstance>(methods);
+		ordered.sort(Comparator.comparingLong((IMethodInstance m) -> history.estimate(DurationHistory.key(m.getMethod())))
+				.reversed()
+				.thenComparingInt(m -> m.getMethod().getPriority()));
+
+		int workers = workers(context.getCurrentXmlTest());
+		long total = 0;
+		long[] estimates = new long[ordered.size()];
+		for (int i = 0; i < estimates.length; i++) {
+			estimates[i] = history.estimate(DurationHistory.key(ordered.get(i).getMethod()));
+			total += estimates[i];
+		}
+		String plan = String.format("%d tests on %d workers: expected %ds, lower bound %ds", ordered.size(), workers,
+				makespan(estimates, workers) / 1000, total / workers / 1000);
+		Reports.setSystemInfo("Schedule (" + context.getName() + ")", plan);
+		return ordered;
+	}
+
+	/**
+	 * Simulates handing the sorted tests to the first idle worker.
+	 *
+	 * @param estimates durations, longest first
+	 * @param workers   the number of worker threads
+	 * @return the time the last worker finishes
+	 */
+	static long makespan(long[] estimates, int workers) {
+		PriorityQueue<Long> finish = new PriorityQueue<Long>();
+		for (int i = 0; i < workers; i++) {
+			finish.add(0L);
+		}
+		long end = 0;
+		for (long estimate : estimates) {
+			long done = finish.poll() + estimate;
+			end = Math.max(end, done);
+			finish.add(done);
+		}
+		return end;
+	}
+
+	private static int workers(XmlTest test) {
+		return test.getParallel() != null && test.getParallel().isParallel() ? Math.max(1, test.getThreadCount()) : 1;
+	}
+
+	@Override
+	public void onTestSuccess(ITestResult result) {
+		measure(result);
+	}
+
+	@Override
+	public void onTestFailure(ITestResult result) {
+		measure(result);
+	}
+
+	private void measure(ITestResult result) {
+		measured.computeIfAbsent(DurationHistory.key(result.getMethod()), k -> new LongAdder())
+				.add(result.getEndMillis() - result.getStartMillis());
+	}
+
+	@Override
+	public void onFinish(ISuite suite) {
+		if (measured.isEmpty()) {
+			return;
+		}
+		DurationHistory history = DurationHistory.get();
+		for (Map.Entry<String, LongAdder> e : measured.entrySet()) {
+			history.record(e.getKey(), e.getValue().sum());
+		}
+		measured.clear();
+		history.save();
+	}
+}
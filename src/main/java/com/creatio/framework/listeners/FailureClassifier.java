@@ -0,0 +1,83 @@
+package com.creatio.framework.listeners;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+
+import org.openqa.selenium.ElementNotInteractableException;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+/**
+ * Sorts test failures by cause, to tell timing and environment problems from real defects.
+ *
+ * <p>The cause chain is searched from the outside in and the first recognised exception decides.
+ * Assertion failures, missing elements and unknown exceptions are treated as real failures;
+ * stale or covered elements, timeouts and lost browser sessions are worth a rerun.</p>
+ */
+public class FailureClassifier {
+
+	/** Kind of failure, with whether a rerun can be expected to change the outcome. */
+	public enum Kind {
+		ASSERTION(false),
+		ELEMENT_NOT_FOUND(false),
+		STALE_ELEMENT(true),
+		NOT_INTERACTABLE(true),
+		TIMEOUT(true),
+		SESSION(true),
+		OTHER(false);
+
+		private final boolean retryable;
+
+		Kind(boolean retryable) {
+			this.retryable = retryable;
+		}
+
+		/** @return {@code true} if failures of this kind are rerun */
+		public boolean isRetryable() {
+			return retryable;
+		}
+	}
+
+	/**
+	 * @param failure the throwable a test failed with, may be {@code null}
+	 * @return the kind of failure
+	 */
+	public static Kind classify(Throwable failure) {
+		for (Throwable t = failure; t != null; t = t.getCause() == t ? null : t.getCause()) {
+			Kind kind = kindOf(t);
+			if (kind != null) {
+				return kind;
+			}
+		}
+		return Kind.OTHER;
+	}
+
+	private static Kind kindOf(Throwable t) {
+		if (t instanceof AssertionError) {
+			return Kind.ASSERTION;
+		}
+		if (t instanceof StaleElementReferenceException) {
+			return Kind.STALE_ELEMENT;
+		}
+		if (t instanceof ElementNotInteractableException) {
+			return Kind.NOT_INTERACTABLE;
+		}
+		if (t instanceof NoSuchElementException) {
+			return Kind.ELEMENT_NOT_FOUND;
+		}
+		if (t instanceof TimeoutException || t instanceof ScriptTimeoutException
+				|| t instanceof java.util.concurrent.TimeoutException || t instanceof SocketTimeoutException) {
+			return Kind.TIMEOUT;
+		}
+		if (t instanceof NoSuchSessionException || t instanceof SessionNotCreatedException
+				|| t instanceof UnreachableBrowserException || t instanceof ConnectException) {
+			return Kind.SESSION;
+		}
+		return null;
+	}
+}
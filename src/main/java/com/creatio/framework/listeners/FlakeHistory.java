@@ -0,0 +1,109 @@
+package com.creatio.framework.listeners;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.creatio.framework.utilities.ConfigService;
+
+/**
+ * Counts, per test method and across runs, how often it passed, failed, or only passed on a rerun.
+ *
+ * <p>Kept in {@code <TEST_HISTORY_DIR>/flakes.properties} as {@code runs,flaky,failed} per
+ * {@code Class#method}, next to the {@link DurationHistory durations}.</p>
+ */
+public class FlakeHistory {
+
+	private static FlakeHistory instance;
+
+	private final Path file;
+
+	/** {@code [runs, flaky, failed]} per method key. */
+	private final Map<String, long[]> counts = new ConcurrentHashMap<String, long[]>();
+
+	private FlakeHistory(Path file) {
+		this.file = file;
+		if (Files.isRegularFile(file)) {
+			Properties stored = new Properties();
+			try (InputStream in = Files.newInputStream(file)) {
+				stored.load(in);
+				for (String key : stored.stringPropertyNames()) {
+					String[] value = stored.getProperty(key).trim().split(",");
+					counts.put(key, new long[] {Long.parseLong(value[0]), Long.parseLong(value[1]), Long.parseLong(value[2])});
+				}
+			} catch (IOException | RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * @return the history of this working directory, loaded on first use
+	 */
+	public static synchronized FlakeHistory get() {
+		if (instance == null) {
+			String dir = ConfigService.current().get("TEST_HISTORY_DIR", "TestHistory");
+			instance = new FlakeHistory(Paths.get(System.getProperty("user.dir"), dir, "flakes.properties"));
+		}
+		return instance;
+	}
+
+	/**
+	 * Records the final outcome of one invocation.
+	 *
+	 * @param key    a {@link DurationHistory#key method key}
+	 * @param flaky  {@code true} if it failed and then passed on a rerun
+	 * @param failed {@code true} if it failed for good
+	 */
+	public void record(String key, boolean flaky, boolean failed) {
+		counts.compute(key, (k, c) -> {
+			long[] updated = c == null ? new long[3] : c.clone();
+			updated[0]++;
+			updated[1] += flaky ? 1 : 0;
+			updated[2] += failed ? 1 : 0;
+			return updated;
+		});
+	}
+
+	/**
+	 * @param key a {@link DurationHistory#key method key}
+	 * @return e.g. {@code "flaky in 2 of 14 runs"}
+	 */
+	public String describe(String key) {
+		long[] c = counts.getOrDefault(key, new long[3]);
+		return "flaky in " + c[1] + " of " + c[0] + " runs";
+	}
+
+	/**
+	 * Writes the history back to its file, replacing it atomically.
+	 */
+	public synchronized void save() {
+		Properties stored = new Properties();
+		for (Map.Entry<String, long[]> e : counts.entrySet()) {
+			long[] c = e.getValue();
+			stored.setProperty(e.getKey(), c[0] + "," + c[1] + "," + c[2]);
+		}
+		Path temp = null;
+		try {
+			Files.createDirectories(file.getParent());
+			// Shards finishing together each write their own file; the last move wins
+			temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				stored.store(out, "Runs, runs that passed only on a rerun, runs that failed");
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			e.printStackTrace();
+			if (temp != null) {
+				temp.toFile().delete();
+			}
+		}
+	}
+}
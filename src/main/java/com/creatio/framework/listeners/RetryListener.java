@@ -0,0 +1,243 @@
+package com.creatio.framework.listeners;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.creatio.framework.base.BrowserContexts;
+import com.creatio.framework.base.DriverPool;
+import com.creatio.framework.reports.Reports;
+import com.creatio.framework.reports.TestContext;
+import org.testng.IAlterSuiteListener;
+import org.testng.IAnnotationTransformer;
+import org.testng.IDataProviderInterceptor;
+import org.testng.IDataProviderMethod;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestContext;
+import org.testng.ITestListener;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.annotations.ITestAnnotation;
+import org.testng.internal.annotations.DisabledRetryAnalyzer;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+/**
+ * Reruns retryable failures once, at the end of the suite, on fresh browser sessions.
+ *
+ * <p>With {@code RETRY_MODE=deferred} a failure that {@link FailureClassifier} considers retryable
+ * is reported as skipped and queued instead of being rerun on the spot, so it does not hold a
+ * worker while the rest of the suite waits. The listener appends a last {@code <test>} named
+ * {@value #RERUN_TEST} to every suite; it contains the same classes, but only the queued methods
+ * (and for data-driven methods only the failed rows) are kept. Idle pooled sessions are quit
+ * before it starts. The rerun result is the final result of the test.</p>
+ *
+ * <p>Reruns draw from the {@code RETRY_BUDGET} shared with {@link RetryTest}; once it is used up,
+ * further failures stand. Methods linked to others by dependencies are never deferred. In every
+ * retry mode the final outcome of each test is added to {@link FlakeHistory}; a pass on a deferred
+ * rerun or an immediate retry counts as flaky.</p>
+ *
+ * <p>Register it in the suite file; it also attaches {@link RetryTest} to every test without a
+ * retry analyzer of its own.</p>
+ */
+public class RetryListener implements IAnnotationTransformer, IAlterSuiteListener, IInvokedMethodListener,
+		IMethodInterceptor, IDataProviderInterceptor, ITestListener, ISuiteListener {
+
+	/** Name of the {@code <test>} holding the deferred reruns. */
+	public static final String RERUN_TEST = "Deferred reruns";
+
+	/** Rows to rerun, by method key; a row is identified by its parameters. */
+	private static final Map<String, Set<String>> deferred = new ConcurrentHashMap<String, Set<String>>();
+
+	/** Suites that received a rerun {@code <test>}; only their failures can be deferred. */
+	private static final Set<String> suitesWithRerun = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * @param context a TestNG context
+	 * @return {@code true} if it is the {@code <test>} running the deferred reruns
+	 */
+	public static boolean isRerun(ITestContext context) {
+		return RERUN_TEST.equals(context.getName());
+	}
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void transform(ITestAnnotation annotation, Class testClass, Constructor testConstructor, Method testMethod) {
+		if (annotation.getRetryAnalyzerClass() == null || annotation.getRetryAnalyzerClass() == DisabledRetryAnalyzer.class) {
+			annotation.setRetryAnalyzer(RetryTest.class);
+		}
+	}
+
+	@Override
+	public void alter(List<XmlSuite> suites) {
+		if (!RetryTest.MODE.equals("deferred")) {
+			return;
+		}
+		for (XmlSuite suite : suites) {
+			// Tests running side by side would start the reruns before the failures are known
+			if (suite.getTests().isEmpty() || suite.getParallel() == XmlSuite.ParallelMode.TESTS) {
+				continue;
+			}
+			XmlTest first = suite.getTests().get(0);
+			Map<String, XmlClass> classes = new LinkedHashMap<String, XmlClass>();
+			Map<String, String> parameters = new LinkedHashMap<String, String>();
+			for (XmlTest test : suite.getTests()) {
+				for (XmlClass xmlClass : test.getXmlClasses()) {
+					classes.putIfAbsent(xmlClass.getName(), new XmlClass(xmlClass.getName(), false));
+				}
+				parameters.putAll(test.getLocalParameters());
+			}
+			XmlTest rerun = new XmlTest(suite);
+			rerun.setName(RERUN_TEST);
+			rerun.setXmlClasses(new ArrayList<XmlClass>(classes.values()));
+			rerun.setParameters(parameters);
+			rerun.setParallel(first.getParallel());
+			rerun.setThreadCount(first.getThreadCount());
+			suitesWithRerun.add(suite.getName());
+		}
+	}
+
+	@Override
+	public void afterInvocation(IInvokedMethod method, ITestResult result, ITestContext context) {
+		if (!method.isTestMethod()) {
+			return;
+		}
+		String key = DurationHistory.key(result.getMethod());
+		FlakeHistory flakes = FlakeHistory.get();
+		if (result.getStatus() == ITestResult.SUCCESS) {
+			// A pass is final in every mode; failures are recorded in onTestFailure, once no retry follows
+			boolean flaky = isRerun(context) || RetryTest.isRetry(result);
+			flakes.record(key, flaky, false);
+			TestContext test = TestContext.current();
+			if (flaky && test != null) {
+				test.warning((isRerun(context) ? "Passed on the deferred rerun; " : "Passed on a retry; ") + flakes.describe(key));
+			}
+			return;
+		}
+		if (result.getStatus() != ITestResult.FAILURE || isRerun(context) || !suitesWithRerun.contains(context.getSuite().getName())) {
+			return;
+		}
+		FailureClassifier.Kind kind = FailureClassifier.classify(result.getThrowable());
+		if (!kind.isRetryable() || isLinked(result.getMethod(), context) || !RetryTest.takeFromBudget()) {
+			return;
+		}
+		deferred.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(row(result.getParameters()));
+		result.setStatus(ITestResult.SKIP);
+		TestContext test = TestContext.current();
+		if (test != null) {
+			test.warning("Deferred to the end of the suite after a " + kind + " failure: " + result.getThrowable());
+		}
+	}
+
+	/**
+	 * Records a failure that stands: TestNG reports attempts that are retried, and failures this
+	 * listener deferred, as skipped instead.
+	 */
+	@Override
+	public void onTestFailure(ITestResult result) {
+		if (!Boolean.TRUE.equals(result.getAttribute(RetryTest.RETRIED))) {
+			FlakeHistory.get().record(DurationHistory.key(result.getMethod()), false, true);
+		}
+	}
+
+	private static boolean isLinked(ITestNGMethod method, ITestContext context) {
+		for (ITestNGMethod other : context.getAllTestMethods()) {
+			if (other != method && (ShardSelector.dependsOn(method, other) || ShardSelector.dependsOn(other, method))) {
+				return true;
+			}
+		}
+		return method.getMethodsDependedUpon().length > 0 || method.getGroupsDependedUpon().length > 0;
+	}
+
+	private static String row(Object[] parameters) {
+		return Arrays.deepToString(parameters);
+	}
+
+	@Override
+	public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+		if (!isRerun(context)) {
+			return methods;
+		}
+		List<IMethodInstance> selected = new ArrayList<IMethodInstance>();
+		for (IMethodInstance method : methods) {
+			if (deferred.containsKey(DurationHistory.key(method.getMethod()))) {
+				selected.add(method);
+			}
+		}
+		return selected;
+	}
+
+	@Override
+	public Iterator<Object[]> intercept(Iterator<Object[]> original, IDataProviderMethod dataProviderMethod,
+			ITestNGMethod method, ITestContext context) {
+		Set<String> rows = isRerun(context) ? deferred.get(DurationHistory.key(method)) : null;
+		if (rows == null) {
+			return original;
+		}
+		return new Iterator<Object[]>() {
+			private Object[] next;
+
+			@Override
+			public boolean hasNext() {
+				while (next == null && original.hasNext()) {
+					Object[] candidate = original.next();
+					if (rows.contains(row(candidate))) {
+						next = candidate;
+					}
+				}
+				return next != null;
+			}
+
+			@Override
+			public Object[] next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Object[] row = next;
+				next = null;
+				return row;
+			}
+		};
+	}
+
+	@Override
+	public void onStart(ITestContext context) {
+		if (isRerun(context) && !deferred.isEmpty()) {
+			int rows = deferred.values().stream().mapToInt(Set::size).sum();
+			TestContext log = Reports.suiteContext();
+			if (log != null) {
+				log.info("Rerunning " + rows + " deferred test invocations on fresh sessions");
+			}
+			// Pooled sessions and shared context browsers both carry state from the first attempt
+			DriverPool.shutdown();
+			BrowserContexts.shutdown();
+		}
+	}
+
+	@Override
+	public void onFinish(ITestContext context) {
+		if (isRerun(context)) {
+			int rows = deferred.values().stream().mapToInt(Set::size).sum();
+			Reports.setSystemInfo("Deferred reruns", rows + " (retry budget left: " + RetryTest.budgetLeft() + ")");
+		}
+	}
+
+	@Override
+	public void onFinish(ISuite suite) {
+		FlakeHistory.get().save();
+	}
+}
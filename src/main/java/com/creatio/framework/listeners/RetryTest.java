@@ -1,26 +1,78 @@
 package com.creatio.framework.listeners;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.creatio.framework.reports.TestContext;
+import com.creatio.framework.utilities.ConfigService;
 import org.testng.IRetryAnalyzer;
 import org.testng.ITestResult;
 
+/**
+ * Decides whether a failed test is run again.
+ *
+ * <p>Only failures that {@link FailureClassifier} considers retryable are rerun, and every rerun
+ * of the suite draws from one shared budget, so a broken environment cannot multiply the run
+ * time. Configured in {@code Config.properties}:</p>
+ * <ul>
+ * <li>{@code RETRY_MODE} - {@code deferred} (default) reruns failures once at the end of the suite
+ * on fresh sessions, see {@link RetryListener}; {@code immediate} reruns them right away, up to
+ * {@code RETRY_LIMIT} times; {@code off} never reruns</li>
+ * <li>{@code RETRY_BUDGET} - maximum number of reruns in the whole suite</li>
+ * </ul>
+ * <p>{@link RetryListener} attaches this analyzer to every test that does not declare its own.</p>
+ */
 public class RetryTest implements IRetryAnalyzer {
-	
+
+	/** {@code deferred}, {@code immediate} or {@code off}. */
+	public static final String MODE = ConfigService.current().get("RETRY_MODE", "deferred").toLowerCase();
+
+	/** Attribute set on a failed result that is run again, so it is not counted as a final failure. */
+	static final String RETRIED = "RetryTest.retried";
+
+	private static final int RETRY_LIMIT = ConfigService.current().getInt("RETRY_LIMIT", 2);
+
+	private static final AtomicInteger budget = new AtomicInteger(ConfigService.current().getInt("RETRY_BUDGET", 10));
+
 	int count = 0;
-	int retryLimit = 2; // Set the retry limit to 2
 
 	@Override
 	public boolean retry(ITestResult result) {
-		
-		if(!result.isSuccess()) {
-			if(count < retryLimit) {
-				count++;
-				return true;
-			}
+		if (result.isSuccess() || !MODE.equals("immediate") || count >= RETRY_LIMIT) {
+			return false;
 		}
-		
-		return false;
+		FailureClassifier.Kind kind = FailureClassifier.classify(result.getThrowable());
+		if (!kind.isRetryable() || !takeFromBudget()) {
+			return false;
+		}
+		count++;
+		result.setAttribute(RETRIED, Boolean.TRUE);
+		TestContext context = TestContext.current();
+		if (context != null) {
+			context.warning("Retrying after " + kind + " failure (attempt " + (count + 1) + ")");
+		}
+		return true;
+	}
+
+	/**
+	 * @param result an invocation of a test method
+	 * @return {@code true} if it is an immediate retry of a failed attempt
+	 */
+	static boolean isRetry(ITestResult result) {
+		IRetryAnalyzer analyzer = result.getMethod().getRetryAnalyzer(result);
+		return analyzer instanceof RetryTest && ((RetryTest) analyzer).count > 0;
 	}
 
-	
+	/**
+	 * Takes one rerun from the suite-wide budget.
+	 *
+	 * @return {@code false} if the budget is used up
+	 */
+	static boolean takeFromBudget() {
+		return budget.getAndUpdate(left -> Math.max(0, left - 1)) > 0;
+	}
 
+	/** @return the reruns left in the suite-wide budget */
+	static int budgetLeft() {
+		return budget.get();
+	}
 }
@@ -0,0 +1,147 @@
+package com.creatio.framework.listeners;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import com.creatio.framework.reports.ReportRenderer;
+import com.creatio.framework.utilities.ConfigService;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Combines the output of the shards of a sharded run (see {@link ShardSelector}).
+ *
+ * <p>Each argument after the first is the working directory of one shard, as collected from the
+ * agents. The event logs under their {@code Reports} directories are rendered into one
+ * {@code Reports/AutomationTestReport.html}, their duration histories are merged into one
+ * {@code durations.properties} to hand to the next run, and their TestNG
+ * {@code testng-results.xml} files (from {@code target/surefire-reports} or {@code test-output})
+ * are merged into one with the same path, for CI result publishers:</p>
+ * <pre>
+ * java com.creatio.framework.listeners.ShardMerge merged shard-1 shard-2 shard-3
+ * </pre>
+ */
+public class ShardMerge {
+
+	/** Where TestNG results are written under Surefire and under a plain TestNG run. */
+	private static final List<String> RESULT_FILES = Arrays.asList("target/surefire-reports/testng-results.xml",
+			"test-output/testng-results.xml");
+
+	/** Counters on the {@code <testng-results>} element, summed over the shards. */
+	private static final List<String> COUNTERS = Arrays.asList("total", "passed", "failed", "skipped", "ignored");
+
+	/**
+	 * @param args the output directory followed by the shard directories
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: ShardMerge <output dir> <shard dir>...");
+			return;
+		}
+		String historyDir = ConfigService.current().get("TEST_HISTORY_DIR", "TestHistory");
+		Path output = Paths.get(args[0]);
+
+		List<Path> eventLogs = new ArrayList<Path>();
+		List<Path> results = new ArrayList<Path>();
+		String resultFile = null;
+		DurationHistory history = new DurationHistory(output.resolve(historyDir).resolve("durations.properties"));
+		for (int i = 1; i < args.length; i++) {
+			Path shard = Paths.get(args[i]);
+			Path reports = shard.resolve("Reports");
+			if (Files.isDirectory(reports)) {
+				eventLogs.addAll(ReportRenderer.eventLogs(reports));
+			}
+			history.merge(shard.resolve(historyDir).resolve("durations.properties"));
+			for (String candidate : RESULT_FILES) {
+				if (Files.isRegularFile(shard.resolve(candidate))) {
+					results.add(shard.resolve(candidate));
+					resultFile = resultFile == null ? candidate : resultFile;
+					break;
+				}
+			}
+		}
+
+		Path report = output.resolve("Reports").resolve("AutomationTestReport.html");
+		Files.createDirectories(report.getParent());
+		ReportRenderer.render(report, eventLogs);
+		history.save();
+		System.out.println("Merged " + eventLogs.size() + " event logs into " + report);
+		if (!results.isEmpty()) {
+			Path merged = output.resolve(resultFile);
+			mergeResults(results, merged);
+			System.out.println("Merged " + results.size() + " TestNG result files into " + merged);
+		}
+	}
+
+	/**
+	 * Merges TestNG {@code testng-results.xml} files: the {@code <suite>} elements of every shard
+	 * are placed under one {@code <testng-results>} element whose counters are the shard totals.
+	 *
+	 * @param files  the result file of each shard
+	 * @param target the merged file to write
+	 * @throws IOException if a file cannot be read, parsed or written
+	 */
+	static void mergeResults(List<Path> files, Path target) throws IOException {
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			DocumentBuilder builder = factory.newDocumentBuilder();
+			Document merged = builder.newDocument();
+			Element root = merged.createElement("testng-results");
+			merged.appendChild(root);
+			Element reporterOutput = merged.createElement("reporter-output");
+			root.appendChild(reporterOutput);
+			long[] counts = new long[COUNTERS.size()];
+			for (Path file : files) {
+				Element shardRoot = builder.parse(file.toFile()).getDocumentElement();
+				for (int i = 0; i < counts.length; i++) {
+					String value = shardRoot.getAttribute(COUNTERS.get(i));
+					counts[i] += value.isEmpty() ? 0 : Long.parseLong(value.trim());
+				}
+				NodeList children = shardRoot.getChildNodes();
+				for (int i = 0; i < children.getLength(); i++) {
+					Node child = children.item(i);
+					if (child.getNodeType() != Node.ELEMENT_NODE) {
+						continue;
+					}
+					if ("reporter-output".equals(child.getNodeName())) {
+						NodeList lines = child.getChildNodes();
+						for (int j = 0; j < lines.getLength(); j++) {
+							reporterOutput.appendChild(merged.importNode(lines.item(j), true));
+						}
+					} else {
+						root.appendChild(merged.importNode(child, true));
+					}
+				}
+			}
+			for (int i = 0; i < counts.length; i++) {
+				root.setAttribute(COUNTERS.get(i), String.valueOf(counts[i]));
+			}
+			Files.createDirectories(target.toAbsolutePath().getParent());
+			Transformer transformer = TransformerFactory.newInstance().newTransformer();
+			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+			transformer.transform(new DOMSource(merged), new StreamResult(target.toFile()));
+		} catch (ParserConfigurationException | SAXException | TransformerException | NumberFormatException e) {
+			throw new IOException("Cannot merge TestNG results into " + target + ": " + e.getMessage(), e);
+		}
+	}
+}
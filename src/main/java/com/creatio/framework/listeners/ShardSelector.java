@@ -0,0 +1,158 @@
+package com.creatio.framework.listeners;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.creatio.framework.reports.Reports;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+
+/**
+ * Runs only this machine's share of a suite, so one suite file can be spread over several agents.
+ *
+ * <p>Started with {@code -Dshard.index=2 -Dshard.count=4}, every agent sees the same methods and
+ * computes the same split, then keeps the methods of its own shard (indexes start at 1). Methods
+ * linked by {@code dependsOnMethods} or {@code dependsOnGroups} always land on the same shard.
+ * The groups of linked methods are packed longest first onto the least loaded shard using
+ * {@link DurationHistory} as it was when the suite started, so shards finish at about the same time
+ * and durations saved during the run cannot move a method between shards. The split is only identical on
+ * every agent if they share the same {@code durations.properties}; keep it with the suite or hand
+ * it to every agent as a build artifact.</p>
+ *
+ * <p>With {@code ROW_SHARDING=true} a data-driven method that is not linked to others is kept by
+ * every shard instead, and {@link DataRowListener} gives each shard its share of the rows.</p>
+ *
+ * <p>Without {@code shard.count}, or with a count of 1, the suite is left unchanged. Each shard
+ * writes its own event log; {@link ShardMerge} combines them into one report. The deferred reruns
+ * of {@link RetryListener} are not split again: each shard reruns its own failures.</p>
+ */
+public class ShardSelector implements IMethodInterceptor {
+
+	/** Shard of a method that runs on every shard, each taking part of its rows. */
+	static final int ALL = -1;
+
+	@Override
+	public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+		int count = Integer.getInteger("shard.count", 1);
+		int index = Integer.getInteger("shard.index", 1);
+		if (count <= 1 || RetryListener.isRerun(context)) {
+			return methods;
+		}
+		if (index < 1 || index > count) {
+			throw new IllegalArgumentException("shard.index must be between 1 and " + count + ": " + index);
+		}
+		int[] shardOf = assign(methods, count, DurationHistory.planning());
+		List<IMethodInstance> selected = new ArrayList<IMethodInstance>();
+		for (int i = 0; i < methods.size(); i++) {
+			if (shardOf[i] == index - 1 || shardOf[i] == ALL) {
+				selected.add(methods.get(i));
+			}
+		}
+		Reports.setSystemInfo("Shard (" + context.getName() + ")",
+				index + " of " + count + ": " + selected.size() + " of " + methods.size() + " tests");
+		return selected;
+	}
+
+	/**
+	 * Splits the methods into shards.
+	 *
+	 * @param methods the methods of a {@code <test>}, in any order
+	 * @param count   the number of shards
+	 * @param history the durations used to balance the shards
+	 * @return the zero-based shard of each method, by position in {@code methods}, or {@link #ALL}
+	 *         for a data-driven method split by rows
+	 */
+	static int[] assign(List<IMethodInstance> methods, int count, DurationHistory history) {
+		int size = methods.size();
+		int[] parent = new int[size];
+		for (int i = 0; i < size; i++) {
+			parent[i] = i;
+		}
+		for (int i = 0; i < size; i++) {
+			ITestNGMethod method = methods.get(i).getMethod();
+			for (int j = 0; j < size; j++) {
+				if (i != j && dependsOn(method, methods.get(j).getMethod())) {
+					parent[find(parent, i)] = find(parent, j);
+				}
+			}
+		}
+
+		// One unit per group of linked methods, named after its first key so every agent sorts alike.
+		Map<Integer, Unit> units = new HashMap<Integer, Unit>();
+		for (int i = 0; i < size; i++) {
+			String key = DurationHistory.key(methods.get(i).getMethod());
+			Unit unit = units.computeIfAbsent(find(parent, i), r -> new Unit());
+			unit.members.add(i);
+			unit.millis += history.estimate(key);
+			if (unit.name == null || key.compareTo(unit.name) < 0) {
+				unit.name = key;
+			}
+		}
+		List<Unit> ordered = new ArrayList<Unit>(units.values());
+		ordered.sort(Comparator.comparingLong((Unit u) -> u.millis).reversed().thenComparing(u -> u.name));
+
+		long[] load = new long[count];
+		int[] shardOf = new int[size];
+		for (Unit unit : ordered) {
+			if (DataRowListener.ROW_SHARDING && unit.members.size() == 1
+					&& methods.get(unit.members.get(0)).getMethod().getDataProviderMethod() != null) {
+				for (int s = 0; s < count; s++) {
+					load[s] += unit.millis / count;
+				}
+				shardOf[unit.members.get(0)] = ALL;
+				continue;
+			}
+			int lightest = 0;
+			for (int s = 1; s < count; s++) {
+				if (load[s] < load[lightest]) {
+					lightest = s;
+				}
+			}
+			load[lightest] += unit.millis;
+			for (int member : unit.members) {
+				shardOf[member] = lightest;
+			}
+		}
+		return shardOf;
+	}
+
+	/**
+	 * @return {@code true} if {@code method} depends on {@code other} by name or by group
+	 */
+	static boolean dependsOn(ITestNGMethod method, ITestNGMethod other) {
+		String otherName = other.getRealClass().getName() + "." + other.getMethodName();
+		for (String dependency : method.getMethodsDependedUpon()) {
+			if (dependency.equals(otherName) || otherName.matches(dependency)) {
+				return true;
+			}
+		}
+		List<String> otherGroups = Arrays.asList(other.getGroups());
+		for (String group : method.getGroupsDependedUpon()) {
+			if (otherGroups.contains(group)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int find(int[] parent, int i) {
+		while (parent[i] != i) {
+			parent[i] = parent[parent[i]];
+			i = parent[i];
+		}
+		return i;
+	}
+
+	/** Methods that have to run on the same shard. */
+	private static final class Unit {
+		private final List<Integer> members = new ArrayList<Integer>();
+		private long millis;
+		private String name;
+	}
+}
@@ -1,6 +1,11 @@
 package com.creatio.framework.listeners;
 
+import java.util.Arrays;
+
+import com.creatio.framework.pagefactory.LocatorCacheStats;
 import com.creatio.framework.reports.Reports;
+import com.creatio.framework.reports.TestContext;
+import org.testng.ITestContext;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
 
@@ -11,23 +16,50 @@ public class TestListeners extends Reports implements ITestListener {
 
 	public void onTestStart(ITestResult result) {
 		String testName = result.getMethod().getMethodName();
-		startReporting(testName);	
-		Reports.logger.info("Test Case Execution Started: " + testName);
+		if (result.getMethod().isDataDriven()) {
+			// Each data row gets its own node, so rows running in parallel do not share one entry.
+			// Methods that only take injected parameters (ITestContext, Method, ...) are not data driven.
+			startReporting(rowName(result.getParameters()), testName);
+		} else {
+			startReporting(testName);
+		}
+		TestContext.current().info("Test Case Execution Started: " + testName);
 	}
 
 	
 	public void onTestSuccess(ITestResult result) {
 		String testName = result.getMethod().getMethodName();
-		Reports.logger.pass("Test Case Execution Passed: " + testName);
+		TestContext.current().pass("Test Case Execution Passed: " + testName);
 		stopReporting();
 	}
 
 	
 	public void onTestFailure(ITestResult result) {
 		String testName = result.getMethod().getMethodName();
-		Reports.logger.fail("Test Case Execution Failed: " + testName);
-		Reports.logger.fail("Test Case Execution Failed due to Error: " + result.getThrowable().getLocalizedMessage());
+		TestContext.current().fail("Test Case Execution Failed: " + testName);
+		TestContext.current().fail("Test Case Execution Failed due to Error: " + result.getThrowable().getLocalizedMessage());
 		stopReporting();
 	}
 
+	public void onTestSkipped(ITestResult result) {
+		String testName = result.getMethod().getMethodName();
+		TestContext context = TestContext.current();
+		if (context != null) {
+			context.skip("Test Case Execution Skipped: " + testName);
+			if (result.getThrowable() != null) {
+				context.skip("Test Case Execution Skipped due to: " + result.getThrowable().getLocalizedMessage());
+			}
+			stopReporting();
+		}
+	}
+
+	private static String rowName(Object[] parameters) {
+		String row = "Row " + Arrays.deepToString(parameters);
+		return row.length() > 120 ? row.substring(0, 117) + "..." : row;
+	}
+
+	public void onFinish(ITestContext context) {
+		setSystemInfo("Element cache", LocatorCacheStats.summary());
+	}
+
 }
@@ -0,0 +1,103 @@
+package com.creatio.framework.pagefactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.pagefactory.ElementLocator;
+
+/**
+ * Element locator that keeps the resolved element until the page changes.
+ *
+ * <p>Cached elements are dropped when the session navigates or switches window/frame
+ * (see {@link #invalidate(SearchContext)}, called by {@code WebCommons}), and individually when a
+ * command reports the element as stale. Unlike {@code @CacheLookup}, a re-rendered element is
+ * therefore re-resolved on demand instead of failing the test.</p>
+ *
+ * <p>Element lists are not cached: rows are added and removed without a navigation, and a cached
+ * list would keep reporting the old ones.</p>
+ */
+public class CachingElementLocator implements ElementLocator {
+
+    /** Page generation of each search context; bumped on every navigation or context switch. */
+    private static final Map<SearchContext, AtomicLong> generations = new WeakHashMap<SearchContext, AtomicLong>();
+
+    private final SearchContext searchContext;
+    private final By by;
+    private final AtomicLong generation;
+
+    private volatile WebElement cachedElement;
+    private volatile long cachedGeneration = -1;
+
+    /**
+     * @param searchContext the driver or element to search from
+     * @param by            the locator of the element
+     */
+    public CachingElementLocator(SearchContext searchContext, By by) {
+        this.searchContext = searchContext;
+        this.by = by;
+        this.generation = generationOf(searchContext);
+    }
+
+    /**
+     * Drops every element cached for the given search context.
+     * Must be called whenever the document shown by the session may have been replaced.
+     *
+     * @param searchContext the driver whose page changed
+     */
+    public static void invalidate(SearchContext searchContext) {
+        generationOf(searchContext).incrementAndGet();
+        LocatorCacheStats.invalidation();
+    }
+
+    private static AtomicLong generationOf(SearchContext searchContext) {
+        synchronized (generations) {
+            return generations.computeIfAbsent(searchContext, k -> new AtomicLong());
+        }
+    }
+
+    /** @return the locator this instance resolves */
+    public By getBy() {
+        return by;
+    }
+
+    @Override
+    public WebElement findElement() {
+        long current = generation.get();
+        WebElement element = cachedElement;
+        if (element != null && cachedGeneration == current) {
+            LocatorCacheStats.hit();
+            return element;
+        }
+        LocatorCacheStats.miss();
+        element = searchContext.findElement(by);
+        cachedElement = element;
+        cachedGeneration = current;
+        return element;
+    }
+
+    /**
+     * Locates the current elements; lists are never served from the cache.
+     */
+    @Override
+    public List<WebElement> findElements() {
+        LocatorCacheStats.miss();
+        return searchContext.findElements(by);
+    }
+
+    /**
+     * Drops the element cached by this locator only, e.g. after it went stale.
+     */
+    public void evict() {
+        cachedElement = null;
+    }
+
+    @Override
+    public String toString() {
+        return "CachingElementLocator '" + by + "'";
+    }
+}
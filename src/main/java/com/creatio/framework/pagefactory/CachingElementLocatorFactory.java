@@ -0,0 +1,28 @@
+package com.creatio.framework.pagefactory;
+
+import java.lang.reflect.Field;
+
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.support.pagefactory.Annotations;
+import org.openqa.selenium.support.pagefactory.ElementLocator;
+import org.openqa.selenium.support.pagefactory.ElementLocatorFactory;
+
+/**
+ * Creates a {@link CachingElementLocator} for every {@code @FindBy} field of a page object.
+ */
+public class CachingElementLocatorFactory implements ElementLocatorFactory {
+
+    private final SearchContext searchContext;
+
+    /**
+     * @param searchContext the driver or element the page object searches from
+     */
+    public CachingElementLocatorFactory(SearchContext searchContext) {
+        this.searchContext = searchContext;
+    }
+
+    @Override
+    public ElementLocator createLocator(Field field) {
+        return new CachingElementLocator(searchContext, new Annotations(field).buildBy());
+    }
+}
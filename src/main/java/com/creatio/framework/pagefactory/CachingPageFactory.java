@@ -0,0 +1,226 @@
+package com.creatio.framework.pagefactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Locatable;
+import org.openqa.selenium.support.PageFactory;
+import org.openqa.selenium.support.pagefactory.DefaultFieldDecorator;
+import org.openqa.selenium.support.pagefactory.ElementLocator;
+
+/**
+ * Opt-in replacement for {@link PageFactory#initElements(org.openqa.selenium.WebDriver, Object)}
+ * whose element proxies reuse resolved elements instead of running {@code findElement} on every call.
+ *
+ * <pre>
+ * public CookiesSteps(WebDriver driver) {
+ *     CachingPageFactory.initElements(driver, this);
+ * }
+ * </pre>
+ *
+ * <p>Elements are cached by {@link CachingElementLocator}. When a command fails with
+ * {@link StaleElementReferenceException}, the proxy evicts the element, locates it again and
+ * retries the command once. Element lists are located on every use; an element taken from a list
+ * that goes stale locates the list again and retries the command once on the element at the same
+ * position. Hit and miss counts are available from {@link LocatorCacheStats}.</p>
+ */
+public class CachingPageFactory {
+
+    /**
+     * Initializes the {@code @FindBy} fields of a page object with caching element proxies.
+     *
+     * @param searchContext the driver or element the page object searches from
+     * @param page          the page object to initialize
+     */
+    public static void initElements(SearchContext searchContext, Object page) {
+        PageFactory.initElements(new CachingFieldDecorator(new CachingElementLocatorFactory(searchContext)), page);
+    }
+
+    /**
+     * Returns the locator behind a caching element proxy.
+     *
+     * @param element an element field initialized by {@link #initElements(SearchContext, Object)}
+     *                or by a generated binder
+     * @return the element's locator, or {@code null} if the element is not a caching proxy
+     */
+    public static By locatorOf(WebElement element) {
+        if (element instanceof LazyElement) {
+            return ((LazyElement) element).getLocator().getBy();
+        }
+        CachingElementHandler handler = handlerOf(element);
+        return handler == null ? null : handler.locator.getBy();
+    }
+
+    /**
+     * Evicts the cached element behind a caching element proxy, e.g. after a script reported it stale.
+     *
+     * @param element an element field initialized by {@link #initElements(SearchContext, Object)}
+     *                or by a generated binder
+     */
+    public static void evict(WebElement element) {
+        if (element instanceof LazyElement) {
+            ((LazyElement) element).getLocator().evict();
+            return;
+        }
+        CachingElementHandler handler = handlerOf(element);
+        if (handler != null) {
+            handler.locator.evict();
+        }
+    }
+
+    /**
+     * Wraps freshly located list elements so that a command hitting a stale one is retried once
+     * on the element now at the same position.
+     *
+     * @param locator  the locator the list was resolved with
+     * @param elements the located elements
+     * @return the elements, each wrapped in a stale-aware proxy
+     */
+    static List<WebElement> retrying(CachingElementLocator locator, List<WebElement> elements) {
+        List<WebElement> proxies = new ArrayList<WebElement>(elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            proxies.add((WebElement) Proxy.newProxyInstance(CachingPageFactory.class.getClassLoader(),
+                    new Class<?>[] {WebElement.class, WrapsElement.class, Locatable.class},
+                    new ListEntryHandler(locator, i, elements.get(i))));
+        }
+        return proxies;
+    }
+
+    private static CachingElementHandler handlerOf(WebElement element) {
+        if (element != null && Proxy.isProxyClass(element.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(element);
+            if (handler instanceof CachingElementHandler) {
+                return (CachingElementHandler) handler;
+            }
+        }
+        return null;
+    }
+
+    /** Field decorator that wraps caching locators into stale-aware proxies. */
+    private static class CachingFieldDecorator extends DefaultFieldDecorator {
+
+        private CachingFieldDecorator(CachingElementLocatorFactory factory) {
+            super(factory);
+        }
+
+        @Override
+        protected WebElement proxyForLocator(ClassLoader loader, ElementLocator locator) {
+            return (WebElement) Proxy.newProxyInstance(loader,
+                    new Class<?>[] {WebElement.class, WrapsElement.class, Locatable.class},
+                    new CachingElementHandler((CachingElementLocator) locator));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected List<WebElement> proxyForListLocator(ClassLoader loader, ElementLocator locator) {
+            return (List<WebElement>) Proxy.newProxyInstance(loader, new Class<?>[] {List.class},
+                    new CachingListHandler((CachingElementLocator) locator));
+        }
+    }
+
+    /** Proxy handler for a single element that retries once on a stale cached element. */
+    private static class CachingElementHandler implements InvocationHandler {
+        private final CachingElementLocator locator;
+
+        private CachingElementHandler(CachingElementLocator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("toString".equals(method.getName())) {
+                return "Proxy element for: " + locator;
+            }
+            WebElement element = locator.findElement();
+            if ("getWrappedElement".equals(method.getName())) {
+                return element;
+            }
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException e) {
+                if (!(e.getCause() instanceof StaleElementReferenceException)) {
+                    throw e.getCause();
+                }
+            }
+            LocatorCacheStats.staleRetry();
+            locator.evict();
+            try {
+                return method.invoke(locator.findElement(), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /** Proxy handler for an element list that locates the list on every use. */
+    private static class CachingListHandler implements InvocationHandler {
+        private final CachingElementLocator locator;
+
+        private CachingListHandler(CachingElementLocator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("toString".equals(method.getName())) {
+                return "Proxy element list for: " + locator;
+            }
+            try {
+                return method.invoke(retrying(locator, locator.findElements()), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /** Proxy handler for one element of a located list that retries once if it went stale. */
+    private static class ListEntryHandler implements InvocationHandler {
+        private final CachingElementLocator locator;
+        private final int index;
+        private final WebElement element;
+
+        private ListEntryHandler(CachingElementLocator locator, int index, WebElement element) {
+            this.locator = locator;
+            this.index = index;
+            this.element = element;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("toString".equals(method.getName())) {
+                return "Proxy element " + index + " of: " + locator;
+            }
+            if ("getWrappedElement".equals(method.getName())) {
+                return element;
+            }
+            StaleElementReferenceException stale;
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException e) {
+                if (!(e.getCause() instanceof StaleElementReferenceException)) {
+                    throw e.getCause();
+                }
+                stale = (StaleElementReferenceException) e.getCause();
+            }
+            List<WebElement> current = locator.findElements();
+            if (index >= current.size()) {
+                throw stale;
+            }
+            LocatorCacheStats.staleRetry();
+            try {
+                return method.invoke(current.get(index), args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
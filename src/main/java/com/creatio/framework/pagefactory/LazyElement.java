@@ -0,0 +1,191 @@
+package com.creatio.framework.pagefactory;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Coordinates;
+import org.openqa.selenium.interactions.Locatable;
+
+/**
+ * Page-object element that resolves itself through a {@link CachingElementLocator} on use.
+ *
+ * <p>Used by the binders generated by
+ * {@link com.creatio.framework.pagefactory.processor.PageObjectProcessor} as a plain class in place
+ * of PageFactory's reflective proxies. It behaves like a {@link CachingPageFactory} element: the
+ * resolved element is reused until the page changes, and a command that hits a stale element
+ * re-resolves it and is retried once.</p>
+ */
+public class LazyElement implements WebElement, WrapsElement, Locatable {
+
+    private final CachingElementLocator locator;
+
+    /**
+     * @param locator the locator resolving this element
+     */
+    public LazyElement(CachingElementLocator locator) {
+        this.locator = locator;
+    }
+
+    /** @return the locator resolving this element */
+    public CachingElementLocator getLocator() {
+        return locator;
+    }
+
+    private <T> T call(Function<WebElement, T> command) {
+        try {
+            return command.apply(locator.findElement());
+        } catch (StaleElementReferenceException e) {
+            LocatorCacheStats.staleRetry();
+            locator.evict();
+            return command.apply(locator.findElement());
+        }
+    }
+
+    @Override
+    public WebElement getWrappedElement() {
+        return locator.findElement();
+    }
+
+    @Override
+    public Coordinates getCoordinates() {
+        return call(e -> ((Locatable) e).getCoordinates());
+    }
+
+    @Override
+    public void click() {
+        call(e -> {
+            e.click();
+            return null;
+        });
+    }
+
+    @Override
+    public void submit() {
+        call(e -> {
+            e.submit();
+            return null;
+        });
+    }
+
+    @Override
+    public void sendKeys(CharSequence... keysToSend) {
+        call(e -> {
+            e.sendKeys(keysToSend);
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        call(e -> {
+            e.clear();
+            return null;
+        });
+    }
+
+    @Override
+    public String getTagName() {
+        return call(WebElement::getTagName);
+    }
+
+    @Override
+    public String getDomProperty(String name) {
+        return call(e -> e.getDomProperty(name));
+    }
+
+    @Override
+    public String getDomAttribute(String name) {
+        return call(e -> e.getDomAttribute(name));
+    }
+
+    @Override
+    @Deprecated
+    public String getAttribute(String name) {
+        return call(e -> e.getAttribute(name));
+    }
+
+    @Override
+    public String getAriaRole() {
+        return call(WebElement::getAriaRole);
+    }
+
+    @Override
+    public String getAccessibleName() {
+        return call(WebElement::getAccessibleName);
+    }
+
+    @Override
+    public boolean isSelected() {
+        return call(WebElement::isSelected);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return call(WebElement::isEnabled);
+    }
+
+    @Override
+    public String getText() {
+        return call(WebElement::getText);
+    }
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        return call(e -> e.findElements(by));
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        return call(e -> e.findElement(by));
+    }
+
+    @Override
+    public SearchContext getShadowRoot() {
+        return call(WebElement::getShadowRoot);
+    }
+
+    @Override
+    public boolean isDisplayed() {
+        return call(WebElement::isDisplayed);
+    }
+
+    @Override
+    public Point getLocation() {
+        return call(WebElement::getLocation);
+    }
+
+    @Override
+    public Dimension getSize() {
+        return call(WebElement::getSize);
+    }
+
+    @Override
+    public Rectangle getRect() {
+        return call(WebElement::getRect);
+    }
+
+    @Override
+    public String getCssValue(String propertyName) {
+        return call(e -> e.getCssValue(propertyName));
+    }
+
+    @Override
+    public <X> X getScreenshotAs(OutputType<X> target) throws WebDriverException {
+        return call(e -> e.getScreenshotAs(target));
+    }
+
+    @Override
+    public String toString() {
+        return "Lazy element for: " + locator;
+    }
+}
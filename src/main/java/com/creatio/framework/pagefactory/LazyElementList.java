@@ -0,0 +1,56 @@
+package com.creatio.framework.pagefactory;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.openqa.selenium.WebElement;
+
+/**
+ * Page-object element list that resolves itself through a {@link CachingElementLocator} on use.
+ * The list counterpart of {@link LazyElement}, used by generated page-object binders.
+ *
+ * <p>Every call locates the list again, so rows added or removed since are seen; iterate rather
+ * than index to locate it once per pass. Elements taken from the list retry a command once on the
+ * element at the same position if they went stale.</p>
+ */
+public class LazyElementList extends AbstractList<WebElement> {
+
+    private final CachingElementLocator locator;
+
+    /**
+     * @param locator the locator resolving the elements
+     */
+    public LazyElementList(CachingElementLocator locator) {
+        this.locator = locator;
+    }
+
+    /** @return the locator resolving the elements */
+    public CachingElementLocator getLocator() {
+        return locator;
+    }
+
+    @Override
+    public WebElement get(int index) {
+        return elements().get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements().size();
+    }
+
+    @Override
+    public Iterator<WebElement> iterator() {
+        return elements().iterator();
+    }
+
+    private List<WebElement> elements() {
+        return CachingPageFactory.retrying(locator, locator.findElements());
+    }
+
+    @Override
+    public String toString() {
+        return "Lazy element list for: " + locator;
+    }
+}
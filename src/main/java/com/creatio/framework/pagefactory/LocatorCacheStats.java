@@ -0,0 +1,79 @@
+package com.creatio.framework.pagefactory;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters of the page-object element cache, shared by all threads.
+ *
+ * <p>A hit is an element access served from the cache, a miss is an access that had to run
+ * {@code findElement}/{@code findElements}, a stale retry is an access that found the cached
+ * element detached from the DOM and re-resolved it, and an invalidation is a navigation or
+ * frame/window switch that dropped the cached elements of a session.</p>
+ */
+public final class LocatorCacheStats {
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder staleRetries = new LongAdder();
+    private static final LongAdder invalidations = new LongAdder();
+
+    private LocatorCacheStats() {
+    }
+
+    static void hit() {
+        hits.increment();
+    }
+
+    static void miss() {
+        misses.increment();
+    }
+
+    static void staleRetry() {
+        staleRetries.increment();
+    }
+
+    static void invalidation() {
+        invalidations.increment();
+    }
+
+    /** @return number of element accesses served from the cache */
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    /** @return number of element accesses that had to locate the element */
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    /** @return number of accesses that re-resolved a stale cached element */
+    public static long getStaleRetries() {
+        return staleRetries.sum();
+    }
+
+    /** @return number of navigations or context switches that dropped cached elements */
+    public static long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    /** @return share of element accesses served from the cache, between 0 and 1 */
+    public static double getHitRate() {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /** Resets all counters. */
+    public static void reset() {
+        hits.reset();
+        misses.reset();
+        staleRetries.reset();
+        invalidations.reset();
+    }
+
+    /** @return a one-line summary of the counters */
+    public static String summary() {
+        return String.format("hits=%d, misses=%d, hit rate=%.1f%%, stale retries=%d, invalidations=%d",
+                getHits(), getMisses(), getHitRate() * 100, getStaleRetries(), getInvalidations());
+    }
+}
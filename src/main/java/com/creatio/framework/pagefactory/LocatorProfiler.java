@@ -0,0 +1,412 @@
+package com.creatio.framework.pagefactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.creatio.framework.base.DriverFactory;
+import com.creatio.framework.utilities.ConfigService;
+import com.creatio.framework.utilities.ConfigSnapshot;
+import com.creatio.framework.webcommons.DomWait;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.FindAll;
+import org.openqa.selenium.support.FindBy;
+import org.openqa.selenium.support.FindBys;
+import org.openqa.selenium.support.pagefactory.Annotations;
+
+/**
+ * Measures how expensive the {@code @FindBy} locators of page-object classes are for the browser
+ * and proposes faster CSS selectors that resolve to the same element.
+ *
+ * <p>Each locator is evaluated inside the browser in a tight loop, so the reported time is the
+ * browser's own lookup cost without WebDriver round trips. A locator is flagged as</p>
+ * <ul>
+ *     <li>{@code NOT_FOUND} - nothing matches on the profiled page</li>
+ *     <li>{@code AMBIGUOUS} - a single-element field matches more than one node</li>
+ *     <li>{@code SLOW} - one lookup takes longer than {@code LOCATOR_SLOW_MICROS}</li>
+ * </ul>
+ *
+ * <p>Candidates come from a direct XPath-to-CSS rewrite when the expression allows it, and from the
+ * matched node itself (id, stable attributes, classes, and finally a structural path from the
+ * nearest ancestor with an id). A candidate is only suggested when it matches exactly one node and
+ * that node is the one the original locator returns.</p>
+ *
+ * <p>Run against a live URL or a saved page, with the page objects on the classpath:</p>
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.creatio.framework.pagefactory.LocatorProfiler
+ *     -Dexec.args="https://www.creatio.com com.creatio.framework.application.elements.HomePage"
+ * </pre>
+ *
+ * <p>The results are written to {@code Reports/LocatorProfile.html} and {@code Reports/LocatorProfile.csv}.</p>
+ */
+public class LocatorProfiler {
+
+    private static final String SCRIPT =
+            "var using = arguments[0], value = arguments[1], iterations = arguments[2], rewritten = arguments[3];"
+            + "function all(u, v) {"
+            + "  if (u === 'xpath') {"
+            + "    var r = document.evaluate(v, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null), out = [];"
+            + "    for (var i = 0; i < r.snapshotLength; i++) { out.push(r.snapshotItem(i)); }"
+            + "    return out;"
+            + "  }"
+            + "  return Array.prototype.slice.call(document.querySelectorAll(v));"
+            + "}"
+            + "function time(u, v) {"
+            + "  all(u, v);"
+            + "  var start = performance.now();"
+            + "  for (var i = 0; i < iterations; i++) { all(u, v); }"
+            + "  return Math.round((performance.now() - start) * 1000 / iterations);"
+            + "}"
+            + "var matches = all(using, value);"
+            + "var result = { matches: matches.length, micros: time(using, value), candidates: [] };"
+            + "if (!matches.length) { return result; }"
+            + "var node = matches[0], tag = node.tagName.toLowerCase();"
+            + "function quote(v) { return '\"' + v.replace(/\\\\/g, '\\\\\\\\').replace(/\"/g, '\\\\\"') + '\"'; }"
+            + "function unique(s) { try { var m = document.querySelectorAll(s); return m.length === 1 && m[0] === node; } catch (e) { return false; } }"
+            + "var anchor = node.parentElement;"
+            + "while (anchor && !(anchor.id && document.querySelectorAll('#' + CSS.escape(anchor.id)).length === 1)) { anchor = anchor.parentElement; }"
+            + "var anchorSelector = anchor ? '#' + CSS.escape(anchor.id) : null;"
+            + "var bases = [];"
+            + "if (rewritten) { bases.push({ source: 'rewritten', selector: rewritten }); }"
+            + "if (node.id) { bases.push({ source: 'id', selector: '#' + CSS.escape(node.id) }); }"
+            + "['data-testid', 'data-test', 'data-qa', 'name', 'aria-label', 'for', 'type', 'value', 'title'].forEach(function(a) {"
+            + "  if (node.hasAttribute(a)) { bases.push({ source: 'attribute', selector: tag + '[' + a + '=' + quote(node.getAttribute(a)) + ']' }); }"
+            + "});"
+            + "if (node.classList.length) {"
+            + "  bases.push({ source: 'class', selector: tag + Array.prototype.map.call(node.classList, function(c) { return '.' + CSS.escape(c); }).join('') });"
+            + "}"
+            + "var path = [], current = node;"
+            + "while (current && current !== anchor && current.nodeType === 1) {"
+            + "  var index = 1, sibling = current;"
+            + "  while ((sibling = sibling.previousElementSibling)) { if (sibling.tagName === current.tagName) { index++; } }"
+            + "  path.unshift(current.tagName.toLowerCase() + ':nth-of-type(' + index + ')');"
+            + "  current = current.parentElement;"
+            + "}"
+            + "bases.push({ source: 'path', selector: (anchorSelector ? anchorSelector + ' > ' : ':root > ') + path.join(' > ') });"
+            + "var seen = {};"
+            + "bases.forEach(function(b) {"
+            + "  var list = [b];"
+            + "  if (b.source !== 'path' && b.source !== 'rewritten' && anchorSelector && !unique(b.selector)) { list.push({ source: b.source + ' in ancestor', selector: anchorSelector + ' ' + b.selector }); }"
+            + "  list.forEach(function(c) {"
+            + "    if (seen[c.selector]) { return; }"
+            + "    seen[c.selector] = true;"
+            + "    var found;"
+            + "    try { found = document.querySelectorAll(c.selector); } catch (e) { return; }"
+            + "    result.candidates.push({ source: c.source, selector: c.selector, matches: found.length,"
+            + "      sameNode: found.length > 0 && found[0] === node, micros: time('css selector', c.selector) });"
+            + "  });"
+            + "});"
+            + "return result;";
+
+    private final WebDriver driver;
+    private final int iterations;
+    private final long slowMicros;
+    private final Duration presenceTimeout;
+
+    /**
+     * Creates a profiler using the thresholds from {@code Config.properties}.
+     *
+     * @param driver a session showing the page to profile
+     */
+    public LocatorProfiler(WebDriver driver) {
+        this.driver = driver;
+        ConfigSnapshot config = ConfigService.current();
+        this.iterations = config.getInt("LOCATOR_ITERATIONS", 100);
+        this.slowMicros = config.getLong("LOCATOR_SLOW_MICROS", 200);
+        this.presenceTimeout = Duration.ofSeconds(config.getLong("LOCATOR_PRESENCE_TIMEOUT", 5));
+    }
+
+    /**
+     * Launches a browser, opens the page and profiles the given page-object classes.
+     *
+     * @param args the URL or path of a saved page, followed by fully qualified page-object class names;
+     *             the browser is taken from the {@code browser} system property (default chrome)
+     * @throws Exception if a class cannot be loaded or the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: LocatorProfiler <url | saved page> <page object class>...");
+            return;
+        }
+        List<Class<?>> pages = new ArrayList<Class<?>>();
+        for (int i = 1; i < args.length; i++) {
+            pages.add(Class.forName(args[i]));
+        }
+        WebDriver driver = DriverFactory.createDriver(System.getProperty("browser", "chrome"));
+        try {
+            File saved = new File(args[0]);
+            driver.get(saved.exists() ? saved.toURI().toString() : args[0]);
+            LocatorProfiler profiler = new LocatorProfiler(driver);
+            List<Result> results = new ArrayList<Result>();
+            for (Class<?> page : pages) {
+                results.addAll(profiler.profile(page));
+            }
+            Path dir = Paths.get(System.getProperty("user.dir"), "Reports");
+            writeReport(results, dir);
+            System.out.println("Profiled " + results.size() + " locator(s); report written to " + dir.resolve("LocatorProfile.html"));
+        } finally {
+            driver.quit();
+        }
+    }
+
+    /**
+     * Profiles every {@code @FindBy} field of a page-object class, including inherited fields,
+     * against the page currently shown by the driver.
+     *
+     * @param pageClass the page-object class
+     * @return one result per annotated field, in declaration order
+     */
+    public List<Result> profile(Class<?> pageClass) {
+        List<Field> fields = new ArrayList<Field>();
+        for (Class<?> type = pageClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            List<Field> declared = new ArrayList<Field>();
+            for (Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(FindBy.class) || field.isAnnotationPresent(FindBys.class)
+                        || field.isAnnotationPresent(FindAll.class)) {
+                    declared.add(field);
+                }
+            }
+            fields.addAll(0, declared);
+        }
+        List<Result> results = new ArrayList<Result>();
+        for (Field field : fields) {
+            results.add(profile(pageClass, field));
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Result profile(Class<?> pageClass, Field field) {
+        By by = new Annotations(field).buildBy();
+        boolean list = List.class.isAssignableFrom(field.getType());
+        Result result = new Result(pageClass.getSimpleName(), field.getName(), by, list);
+        if (!(by instanceof By.Remotable)) {
+            result.flags.add("NOT_PROFILED");
+            return result;
+        }
+        By.Remotable.Parameters params = ((By.Remotable) by).getRemoteParameters();
+        String using = params.using();
+        String value = String.valueOf(params.value());
+        result.strategy = using;
+        result.expression = value;
+        if (!using.equals("xpath") && !using.equals("css selector")) {
+            result.flags.add("NOT_PROFILED");
+            return result;
+        }
+        try {
+            DomWait.untilPresent(driver, by, presenceTimeout);
+        } catch (TimeoutException e) {
+            // Reported as NOT_FOUND below
+        }
+        String rewritten = using.equals("xpath") ? XPathToCss.convert(value) : null;
+        Map<String, Object> measured = (Map<String, Object>) ((JavascriptExecutor) driver)
+                .executeScript(SCRIPT, using, value, iterations, rewritten);
+        result.matches = ((Number) measured.get("matches")).intValue();
+        result.micros = ((Number) measured.get("micros")).longValue();
+        for (Map<String, Object> c : (List<Map<String, Object>>) measured.get("candidates")) {
+            Candidate candidate = new Candidate((String) c.get("source"), (String) c.get("selector"),
+                    ((Number) c.get("matches")).intValue(), Boolean.TRUE.equals(c.get("sameNode")),
+                    ((Number) c.get("micros")).longValue());
+            result.candidates.add(candidate);
+            if (result.suggestion == null && candidate.isExact()) {
+                result.suggestion = candidate;
+            }
+        }
+        if (result.matches == 0) {
+            result.flags.add("NOT_FOUND");
+        } else if (result.matches > 1 && !list) {
+            result.flags.add("AMBIGUOUS");
+        }
+        if (result.micros > slowMicros) {
+            result.flags.add("SLOW");
+        }
+        if (list) {
+            // A unique selector would change what a list field returns
+            result.suggestion = null;
+        } else if (result.suggestion != null && result.suggestion.micros >= result.micros && result.matches == 1) {
+            result.suggestion = null;
+        }
+        return result;
+    }
+
+    /**
+     * Writes the results to {@code LocatorProfile.html} and {@code LocatorProfile.csv}.
+     *
+     * @param results the profiled locators
+     * @param dir     the directory to write to; created if missing
+     * @throws IOException if a file cannot be written
+     */
+    public static void writeReport(List<Result> results, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(dir.resolve("LocatorProfile.csv"), StandardCharsets.UTF_8))) {
+            csv.println("page,field,strategy,locator,matches,micros,flags,suggested_selector,suggested_source,suggested_micros,speedup");
+            for (Result r : results) {
+                Candidate s = r.suggestion;
+                csv.println(String.join(",", csvCell(r.page), csvCell(r.field), csvCell(r.strategy), csvCell(r.expression),
+                        String.valueOf(r.matches), String.valueOf(r.micros), csvCell(String.join(" ", r.flags)),
+                        csvCell(s == null ? "" : s.selector), csvCell(s == null ? "" : s.source),
+                        s == null ? "" : String.valueOf(s.micros), s == null ? "" : String.format("%.1f", r.speedup())));
+            }
+        }
+        try (PrintWriter html = new PrintWriter(Files.newBufferedWriter(dir.resolve("LocatorProfile.html"), StandardCharsets.UTF_8))) {
+            html.println("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Locator Profile</title><style>");
+            html.println("body{font-family:sans-serif;font-size:13px}table{border-collapse:collapse;width:100%}"
+                    + "th,td{border:1px solid #ccc;padding:4px;text-align:left;vertical-align:top}th{background:#eee}"
+                    + "tr.flagged{background:#fff3e0}code{word-break:break-all}");
+            html.println("</style></head><body><h2>Locator Profile</h2><table>");
+            html.println("<tr><th>Page</th><th>Field</th><th>Locator</th><th>Matches</th><th>&micro;s</th><th>Flags</th>"
+                    + "<th>Suggested CSS</th><th>&micro;s</th><th>Speed-up</th></tr>");
+            for (Result r : results) {
+                Candidate s = r.suggestion;
+                html.println("<tr" + (r.flags.isEmpty() ? "" : " class=\"flagged\"") + "><td>" + escape(r.page) + "</td><td>"
+                        + escape(r.field) + "</td><td><code>" + escape(r.strategy + ": " + r.expression) + "</code></td><td>"
+                        + r.matches + "</td><td>" + r.micros + "</td><td>" + escape(String.join(" ", r.flags)) + "</td><td>"
+                        + (s == null ? "" : "<code>" + escape(s.selector) + "</code> (" + escape(s.source) + ")") + "</td><td>"
+                        + (s == null ? "" : s.micros) + "</td><td>" + (s == null ? "" : String.format("%.1fx", r.speedup())) + "</td></tr>");
+            }
+            html.println("</table></body></html>");
+        }
+    }
+
+    private static String csvCell(String value) {
+        String text = value == null ? "" : value;
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String escape(String value) {
+        return value == null ? "" : value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /** Profiling result of one page-object field. */
+    public static class Result {
+        private final String page;
+        private final String field;
+        private final boolean list;
+        private String strategy;
+        private String expression;
+        private int matches;
+        private long micros;
+        private final List<String> flags = new ArrayList<String>();
+        private final List<Candidate> candidates = new ArrayList<Candidate>();
+        private Candidate suggestion;
+
+        private Result(String page, String field, By by, boolean list) {
+            this.page = page;
+            this.field = field;
+            this.list = list;
+            this.strategy = "composite";
+            this.expression = by.toString();
+        }
+
+        public String getPage() {
+            return page;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        /** @return {@code true} if the field is a {@code List<WebElement>} */
+        public boolean isList() {
+            return list;
+        }
+
+        /** @return the locator strategy, e.g. {@code xpath} or {@code css selector} */
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+
+        /** @return number of nodes the locator matches on the profiled page */
+        public int getMatches() {
+            return matches;
+        }
+
+        /** @return average in-browser lookup time in microseconds */
+        public long getMicros() {
+            return micros;
+        }
+
+        /** @return {@code NOT_FOUND}, {@code AMBIGUOUS}, {@code SLOW} or {@code NOT_PROFILED} flags */
+        public List<String> getFlags() {
+            return Collections.unmodifiableList(flags);
+        }
+
+        /** @return every CSS candidate that was evaluated, in preference order */
+        public List<Candidate> getCandidates() {
+            return Collections.unmodifiableList(candidates);
+        }
+
+        /** @return the proposed replacement, or {@code null} if the locator should stay as it is */
+        public Candidate getSuggestion() {
+            return suggestion;
+        }
+
+        /** @return how many times faster the suggestion is than the original locator */
+        public double speedup() {
+            return suggestion == null ? 1 : (double) Math.max(micros, 1) / Math.max(suggestion.micros, 1);
+        }
+    }
+
+    /** A CSS selector proposed for a page-object field. */
+    public static class Candidate {
+        private final String source;
+        private final String selector;
+        private final int matches;
+        private final boolean sameNode;
+        private final long micros;
+
+        private Candidate(String source, String selector, int matches, boolean sameNode, long micros) {
+            this.source = source;
+            this.selector = selector;
+            this.matches = matches;
+            this.sameNode = sameNode;
+            this.micros = micros;
+        }
+
+        /** @return how the selector was derived: rewritten, id, attribute, class or path */
+        public String getSource() {
+            return source;
+        }
+
+        public String getSelector() {
+            return selector;
+        }
+
+        public int getMatches() {
+            return matches;
+        }
+
+        /** @return {@code true} if the first match is the node the original locator returns */
+        public boolean isSameNode() {
+            return sameNode;
+        }
+
+        /** @return average in-browser lookup time in microseconds */
+        public long getMicros() {
+            return micros;
+        }
+
+        /** @return {@code true} if the selector matches exactly the original node */
+        public boolean isExact() {
+            return matches == 1 && sameNode;
+        }
+    }
+}
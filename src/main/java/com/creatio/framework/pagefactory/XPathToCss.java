@@ -0,0 +1,165 @@
+package com.creatio.framework.pagefactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites simple XPath expressions into equivalent CSS selectors.
+ *
+ * <p>Only expressions that CSS can express exactly are converted: child and descendant steps
+ * with a tag name (or {@code *}) and attribute predicates of the forms {@code @a}, {@code @a='v'},
+ * {@code contains(@a,'v')} and {@code starts-with(@a,'v')}. Axes, positions, {@code text()} and
+ * boolean operators have no CSS equivalent and make the conversion return {@code null}.</p>
+ */
+final class XPathToCss {
+
+    private static final Pattern STEP = Pattern.compile("^([A-Za-z][\\w-]*|\\*)((?:\\[.*\\])*)$");
+    private static final Pattern HAS_ATTRIBUTE = Pattern.compile("^@([A-Za-z][\\w-]*)$");
+    private static final Pattern EQUALS = Pattern.compile("^@([A-Za-z][\\w-]*)\\s*=\\s*(?:'([^']*)'|\"([^\"]*)\")$");
+    private static final Pattern FUNCTION = Pattern.compile("^(contains|starts-with)\\(\\s*@([A-Za-z][\\w-]*)\\s*,\\s*(?:'([^']*)'|\"([^\"]*)\")\\s*\\)$");
+    private static final Pattern IDENTIFIER = Pattern.compile("^[A-Za-z_][\\w-]*$");
+
+    private XPathToCss() {
+    }
+
+    /**
+     * @param xpath the XPath expression to convert
+     * @return the equivalent CSS selector, or {@code null} if the expression cannot be expressed in CSS
+     */
+    static String convert(String xpath) {
+        String expression = xpath.trim();
+        if (!expression.startsWith("/")) {
+            return null;
+        }
+        boolean absolute = !expression.startsWith("//");
+        List<String> tokens = split(expression);
+        if (tokens == null) {
+            return null;
+        }
+        StringBuilder css = new StringBuilder();
+        boolean descendant = false;
+        for (int i = 1; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.isEmpty()) {
+                descendant = true;
+                continue;
+            }
+            String step = step(token);
+            if (step == null) {
+                return null;
+            }
+            if (css.length() > 0) {
+                css.append(descendant ? " " : " > ");
+            } else if (absolute && !step.startsWith("html")) {
+                return null;
+            }
+            css.append(step);
+            descendant = false;
+        }
+        return css.length() == 0 ? null : css.toString();
+    }
+
+    /** Splits an expression on the slashes that are outside predicates and string literals. */
+    private static List<String> split(String expression) {
+        List<String> tokens = new ArrayList<String>();
+        StringBuilder current = new StringBuilder();
+        int depth = 0;
+        char quote = 0;
+        for (char c : expression.toCharArray()) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+            } else if (c == '/' && depth == 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+                continue;
+            }
+            current.append(c);
+        }
+        if (quote != 0 || depth != 0) {
+            return null;
+        }
+        tokens.add(current.toString());
+        return tokens;
+    }
+
+    private static String step(String token) {
+        Matcher matcher = STEP.matcher(token.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        StringBuilder css = new StringBuilder(matcher.group(1));
+        String predicates = matcher.group(2);
+        int start = 0;
+        while (start < predicates.length()) {
+            int end = closingBracket(predicates, start);
+            if (end < 0) {
+                return null;
+            }
+            String predicate = predicate(predicates.substring(start + 1, end).trim());
+            if (predicate == null) {
+                return null;
+            }
+            css.append(predicate);
+            start = end + 1;
+        }
+        if (css.length() > 1 && css.charAt(0) == '*') {
+            css.deleteCharAt(0);
+        }
+        return css.toString();
+    }
+
+    private static int closingBracket(String predicates, int open) {
+        char quote = 0;
+        for (int i = open + 1; i < predicates.length(); i++) {
+            char c = predicates.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[') {
+                return -1;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String predicate(String predicate) {
+        Matcher matcher = HAS_ATTRIBUTE.matcher(predicate);
+        if (matcher.matches()) {
+            return "[" + matcher.group(1) + "]";
+        }
+        matcher = EQUALS.matcher(predicate);
+        if (matcher.matches()) {
+            String value = matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+            if (matcher.group(1).equals("id") && IDENTIFIER.matcher(value).matches()) {
+                return "#" + value;
+            }
+            return "[" + matcher.group(1) + "=" + quote(value) + "]";
+        }
+        matcher = FUNCTION.matcher(predicate);
+        if (matcher.matches()) {
+            String value = matcher.group(3) != null ? matcher.group(3) : matcher.group(4);
+            String operator = matcher.group(1).equals("contains") ? "*=" : "^=";
+            return "[" + matcher.group(2) + operator + quote(value) + "]";
+        }
+        return null;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
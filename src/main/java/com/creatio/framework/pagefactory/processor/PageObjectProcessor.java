@@ -0,0 +1,335 @@
+package com.creatio.framework.pagefactory.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+import org.openqa.selenium.support.FindAll;
+import org.openqa.selenium.support.FindBy;
+import org.openqa.selenium.support.FindBys;
+import org.openqa.selenium.support.How;
+
+/**
+ * Annotation processor that generates a {@code <PageClass>Binder} for every class declaring
+ * {@code @FindBy}, {@code @FindBys} or {@code @FindAll} fields.
+ *
+ * <p>A binder assigns each field a {@link com.creatio.framework.pagefactory.LazyElement} (or
+ * {@link com.creatio.framework.pagefactory.LazyElementList}) in straight-line code, with the
+ * {@code By} locators held in static constants, so binding a page object needs neither reflection
+ * nor dynamic proxies:</p>
+ * <pre>
+ * public CookiesSteps(WebDriver driver) {
+ *     HomePageBinder.bind(this, driver);
+ * }
+ * </pre>
+ *
+ * <p>The binder of a subclass binds the fields of its page-object superclasses first. Private or
+ * final fields cannot be assigned from generated code; classes declaring them get a warning and no
+ * binder, and keep working with {@code PageFactory}.</p>
+ */
+public class PageObjectProcessor extends AbstractProcessor {
+
+    private static final String WEB_ELEMENT = "org.openqa.selenium.WebElement";
+
+    private final Set<String> generated = new LinkedHashSet<String>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        Set<String> types = new LinkedHashSet<String>();
+        types.add("org.openqa.selenium.support.FindBy");
+        types.add("org.openqa.selenium.support.FindBys");
+        types.add("org.openqa.selenium.support.FindAll");
+        return types;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> pages = new LinkedHashSet<TypeElement>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.FIELD) {
+                    pages.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+        for (TypeElement page : pages) {
+            if (generated.add(page.getQualifiedName().toString())) {
+                generate(page, pages);
+            }
+        }
+        return false;
+    }
+
+    private void generate(TypeElement page, Set<TypeElement> round) {
+        String unbindable = unbindableReason(page);
+        if (unbindable != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "No binder generated for " + page.getSimpleName() + ": " + unbindable, page);
+            return;
+        }
+        Map<VariableElement, String> fields = new LinkedHashMap<VariableElement, String>();
+        for (VariableElement field : locatorFields(page)) {
+            try {
+                fields.put(field, byExpression(field));
+            } catch (IllegalArgumentException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), field);
+                return;
+            }
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(page).getQualifiedName().toString();
+        String binderName = binderName(page);
+        TypeElement parent = pageSuperclass(page);
+        if (parent != null && !round.contains(parent) && !generated.contains(parent.getQualifiedName().toString())
+                && processingEnv.getElementUtils().getTypeElement(binderClassName(parent)) == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "No binder generated for " + page.getSimpleName() + ": superclass "
+                            + parent.getSimpleName() + " has no binder", page);
+            return;
+        }
+        if (parent != null && unbindableReason(parent) != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "No binder generated for " + page.getSimpleName() + ": superclass "
+                            + parent.getSimpleName() + " cannot be bound", page);
+            return;
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import org.openqa.selenium.By;\n")
+                .append("import org.openqa.selenium.SearchContext;\n")
+                .append("import com.creatio.framework.pagefactory.CachingElementLocator;\n")
+                .append("import com.creatio.framework.pagefactory.LazyElement;\n")
+                .append("import com.creatio.framework.pagefactory.LazyElementList;\n\n")
+                .append("/**\n")
+                .append(" * Binds the element fields of {@link ").append(page.getQualifiedName()).append("}.\n")
+                .append(" * Generated by ").append(PageObjectProcessor.class.getName()).append("; do not edit.\n")
+                .append(" */\n")
+                .append("@javax.annotation.processing.Generated(\"").append(PageObjectProcessor.class.getName()).append("\")\n")
+                .append("public final class ").append(binderName).append(" {\n\n");
+        int index = 0;
+        for (String by : fields.values()) {
+            source.append("    private static final By BY_").append(index++).append(" = ").append(by).append(";\n");
+        }
+        source.append("\n    private ").append(binderName).append("() {\n    }\n\n")
+                .append("    /**\n")
+                .append("     * Assigns every element field of the page object, including inherited ones.\n")
+                .append("     *\n")
+                .append("     * @param page          the page object to bind\n")
+                .append("     * @param searchContext the driver or element the page object searches from\n")
+                .append("     */\n")
+                .append("    public static void bind(").append(page.getQualifiedName()).append(" page, SearchContext searchContext) {\n");
+        if (parent != null) {
+            source.append("        ").append(binderClassName(parent)).append(".bind(page, searchContext);\n");
+        }
+        index = 0;
+        for (VariableElement field : fields.keySet()) {
+            String type = "list".equals(elementKind(field.asType())) ? "LazyElementList" : "LazyElement";
+            source.append("        page.").append(field.getSimpleName()).append(" = new ").append(type)
+                    .append("(new CachingElementLocator(searchContext, BY_").append(index++).append("));\n");
+        }
+        source.append("    }\n}\n");
+
+        String qualifiedName = binderClassName(page);
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, page).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + qualifiedName + ": " + e.getMessage(), page);
+        }
+    }
+
+    /** @return why the generated code cannot assign the fields of the class, or {@code null} if it can */
+    private String unbindableReason(TypeElement page) {
+        for (VariableElement field : locatorFields(page)) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+                return "field " + field.getSimpleName() + " is private, final or static";
+            }
+            if (elementKind(field.asType()) == null) {
+                return "field " + field.getSimpleName() + " is not a WebElement or List<WebElement>";
+            }
+        }
+        return null;
+    }
+
+    private String binderClassName(TypeElement page) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(page).getQualifiedName().toString();
+        return packageName.isEmpty() ? binderName(page) : packageName + "." + binderName(page);
+    }
+
+    /** Fields of the class itself annotated with a locator annotation, in declaration order. */
+    private static List<VariableElement> locatorFields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<VariableElement>();
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.FIELD && (member.getAnnotation(FindBy.class) != null
+                    || member.getAnnotation(FindBys.class) != null || member.getAnnotation(FindAll.class) != null)) {
+                fields.add((VariableElement) member);
+            }
+        }
+        return fields;
+    }
+
+    /** Nearest superclass that declares locator fields, and therefore has a binder of its own. */
+    private TypeElement pageSuperclass(TypeElement page) {
+        TypeMirror superclass = page.getSuperclass();
+        while (superclass.getKind() == TypeKind.DECLARED) {
+            TypeElement type = (TypeElement) ((DeclaredType) superclass).asElement();
+            if (!locatorFields(type).isEmpty()) {
+                return type;
+            }
+            superclass = type.getSuperclass();
+        }
+        return null;
+    }
+
+    private static String binderName(TypeElement page) {
+        StringBuilder name = new StringBuilder(page.getSimpleName());
+        for (Element outer = page.getEnclosingElement(); !(outer instanceof PackageElement); outer = outer.getEnclosingElement()) {
+            name.insert(0, outer.getSimpleName() + "_");
+        }
+        return name.append("Binder").toString();
+    }
+
+    /** @return {@code element}, {@code list} or {@code null} for unsupported field types */
+    private String elementKind(TypeMirror type) {
+        if (type.toString().equals(WEB_ELEMENT)) {
+            return "element";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            DeclaredType declared = (DeclaredType) type;
+            String raw = ((TypeElement) declared.asElement()).getQualifiedName().toString();
+            if (raw.equals("java.util.List") && declared.getTypeArguments().size() == 1
+                    && declared.getTypeArguments().get(0).toString().equals(WEB_ELEMENT)) {
+                return "list";
+            }
+        }
+        return null;
+    }
+
+    private static String byExpression(VariableElement field) {
+        FindBy findBy = field.getAnnotation(FindBy.class);
+        FindBys findBys = field.getAnnotation(FindBys.class);
+        FindAll findAll = field.getAnnotation(FindAll.class);
+        if ((findBy != null ? 1 : 0) + (findBys != null ? 1 : 0) + (findAll != null ? 1 : 0) > 1) {
+            throw new IllegalArgumentException("Only one of @FindBy, @FindBys and @FindAll may be used on " + field.getSimpleName());
+        }
+        if (findBy != null) {
+            return byExpression(findBy);
+        }
+        FindBy[] parts = findBys != null ? findBys.value() : findAll.value();
+        StringBuilder expression = new StringBuilder(findBys != null
+                ? "new org.openqa.selenium.support.pagefactory.ByChained("
+                : "new org.openqa.selenium.support.pagefactory.ByAll(");
+        for (int i = 0; i < parts.length; i++) {
+            expression.append(i == 0 ? "" : ", ").append(byExpression(parts[i]));
+        }
+        return expression.append(")").toString();
+    }
+
+    private static String byExpression(FindBy findBy) {
+        List<String> set = new ArrayList<String>();
+        if (findBy.how() != How.UNSET) {
+            set.add(byFor(findBy.how(), findBy.using()));
+        }
+        addIfSet(set, How.ID, findBy.id());
+        addIfSet(set, How.NAME, findBy.name());
+        addIfSet(set, How.CLASS_NAME, findBy.className());
+        addIfSet(set, How.CSS, findBy.css());
+        addIfSet(set, How.TAG_NAME, findBy.tagName());
+        addIfSet(set, How.LINK_TEXT, findBy.linkText());
+        addIfSet(set, How.PARTIAL_LINK_TEXT, findBy.partialLinkText());
+        addIfSet(set, How.XPATH, findBy.xpath());
+        if (set.size() != 1) {
+            throw new IllegalArgumentException("@FindBy must set exactly one locator, found " + set.size());
+        }
+        return set.get(0);
+    }
+
+    private static void addIfSet(List<String> set, How how, String value) {
+        if (!value.isEmpty()) {
+            set.add(byFor(how, value));
+        }
+    }
+
+    private static String byFor(How how, String using) {
+        String literal = literal(using);
+        switch (how) {
+            case CLASS_NAME:
+                return "By.className(" + literal + ")";
+            case CSS:
+                return "By.cssSelector(" + literal + ")";
+            case ID:
+                return "By.id(" + literal + ")";
+            case ID_OR_NAME:
+                return "new org.openqa.selenium.support.ByIdOrName(" + literal + ")";
+            case LINK_TEXT:
+                return "By.linkText(" + literal + ")";
+            case NAME:
+                return "By.name(" + literal + ")";
+            case PARTIAL_LINK_TEXT:
+                return "By.partialLinkText(" + literal + ")";
+            case TAG_NAME:
+                return "By.tagName(" + literal + ")";
+            case XPATH:
+                return "By.xpath(" + literal + ")";
+            default:
+                throw new IllegalArgumentException("Unsupported locator strategy: " + how);
+        }
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    literal.append("\\\"");
+                    break;
+                case '\\':
+                    literal.append("\\\\");
+                    break;
+                case '\n':
+                    literal.append("\\n");
+                    break;
+                case '\r':
+                    literal.append("\\r");
+                    break;
+                case '\t':
+                    literal.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+            }
+        }
+        return literal.append("\"").toString();
+    }
+}
@@ -0,0 +1,278 @@
+package com.creatio.framework.reports;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import com.creatio.framework.utilities.ConfigService;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+/**
+ * Collects the duration of every WebDriver command and browser start of the run, including page
+ * loads, scripts and network-idle waits sent over WebDriver BiDi.
+ *
+ * <p>Durations go into log-bucketed histograms (buckets 10% wide) per command type and per
+ * page-object method, so recording is a few atomic increments and memory does not grow with the
+ * number of commands. The slowest individual operations are kept in a bounded top-N list with
+ * their locator and test name. At the end of the suite {@link #writeReport(Path)} writes
+ * p50/p95/p99 tables to {@code Reports/CommandTimings.html} and {@code .csv}.</p>
+ *
+ * <p>Enabled with {@code COMMAND_TIMING=true}; {@code COMMAND_TIMING_TOP} sets the size of the
+ * slowest-operations table.</p>
+ */
+public final class CommandTimings {
+
+    /** {@code true} when sessions are instrumented. */
+    public static final boolean ENABLED = ConfigService.current().getBoolean("COMMAND_TIMING", true);
+
+    private static final int TOP = ConfigService.current().getInt("COMMAND_TIMING_TOP", 25);
+
+    private static final Map<String, Histogram> byCommand = new ConcurrentHashMap<String, Histogram>();
+    private static final Map<String, Histogram> byPageMethod = new ConcurrentHashMap<String, Histogram>();
+
+    /** Slowest operations, smallest first; guarded by itself. */
+    private static final PriorityQueue<Sample> slowest = new PriorityQueue<Sample>(Comparator.comparingLong(s -> s.nanos));
+
+    /** Duration an operation must exceed to enter {@link #slowest}; read without locking. */
+    private static volatile long slowestThreshold;
+
+    /** Packages whose frames are skipped when looking for the page-object method. */
+    private static final String[] SKIPPED = {"com.creatio.framework.base.", "com.creatio.framework.webcommons.",
+            "com.creatio.framework.pagefactory.", "com.creatio.framework.reports.", "com.creatio.framework.listeners.",
+            "com.creatio.framework.utilities.", "com.creatio.framework.api.", "org.openqa.selenium.", "java.", "jdk.",
+            "sun.", "com.sun.", "net.bytebuddy.", "org.testng."};
+
+    private static final StackWalker walker = StackWalker.getInstance();
+
+    private CommandTimings() {
+    }
+
+    /**
+     * Times an operation that does not pass through an instrumented session, such as a BiDi
+     * command, and records it under the calling page-object method.
+     *
+     * @param command   the command type, e.g. {@code BrowsingContext.navigate}
+     * @param target    supplies the URL or target description; only called for slow operations
+     * @param operation the operation
+     * @return the result of the operation
+     */
+    public static <T> T time(String command, Supplier<String> target, Supplier<T> operation) {
+        if (!ENABLED) {
+            return operation.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return operation.get();
+        } finally {
+            record(command, pageMethod(), System.nanoTime() - start, target);
+        }
+    }
+
+    /**
+     * As {@link #time(String, Supplier, Supplier)}, for an operation without a result.
+     */
+    public static void time(String command, Supplier<String> target, Runnable operation) {
+        time(command, target, () -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return {@code Class.method} of the first caller on the stack outside the framework, Selenium
+     *         and TestNG, or {@code null}
+     */
+    public static String pageMethod() {
+        return walker.walk(frames -> frames
+                .filter(f -> !isSkipped(f.getClassName()))
+                .findFirst()
+                .map(f -> simpleName(f.getClassName()) + "." + f.getMethodName())
+                .orElse(null));
+    }
+
+    private static boolean isSkipped(String className) {
+        for (String prefix : SKIPPED) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return className.contains("$Proxy") || className.contains("$ByteBuddy");
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Records one operation.
+     *
+     * @param command    the command type, e.g. {@code WebElement.click}
+     * @param pageMethod the page-object method that issued it, or {@code null}
+     * @param nanos      the duration in nanoseconds
+     * @param locator    supplies the locator or target description; only called for slow operations
+     */
+    public static void record(String command, String pageMethod, long nanos, Supplier<String> locator) {
+        byCommand.computeIfAbsent(command, k -> new Histogram()).record(nanos);
+        if (pageMethod != null) {
+            byPageMethod.computeIfAbsent(pageMethod, k -> new Histogram()).record(nanos);
+        }
+        if (nanos > slowestThreshold) {
+            Sample sample = new Sample(command, pageMethod, currentTest(), locator == null ? null : locator.get(), nanos);
+            synchronized (slowest) {
+                slowest.add(sample);
+                if (slowest.size() > TOP) {
+                    slowest.poll();
+                    slowestThreshold = slowest.peek().nanos;
+                }
+            }
+        }
+    }
+
+    private static String currentTest() {
+        ITestResult result = Reporter.getCurrentTestResult();
+        return result == null ? null : result.getMethod().getMethodName();
+    }
+
+    /** Clears everything recorded so far. */
+    public static void reset() {
+        byCommand.clear();
+        byPageMethod.clear();
+        synchronized (slowest) {
+            slowest.clear();
+            slowestThreshold = 0;
+        }
+    }
+
+    /**
+     * Writes {@code CommandTimings.html} and {@code CommandTimings.csv} into the given directory.
+     *
+     * @param dir the report directory
+     * @throws IOException if a file cannot be written
+     */
+    public static void writeReport(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        List<Sample> top;
+        synchronized (slowest) {
+            top = new ArrayList<Sample>(slowest);
+        }
+        top.sort(Comparator.comparingLong((Sample s) -> s.nanos).reversed());
+
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(dir.resolve("CommandTimings.csv"), StandardCharsets.UTF_8))) {
+            csv.println("group,name,count,total_ms,p50_ms,p95_ms,p99_ms,max_ms");
+            writeCsv(csv, "command", byCommand);
+            writeCsv(csv, "page_method", byPageMethod);
+        }
+        try (PrintWriter html = new PrintWriter(Files.newBufferedWriter(dir.resolve("CommandTimings.html"), StandardCharsets.UTF_8))) {
+            html.println("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Command Timings</title><style>"
+                    + "body{font-family:sans-serif;font-size:13px}table{border-collapse:collapse;margin-bottom:24px}"
+                    + "th,td{border:1px solid #ccc;padding:3px 8px;text-align:right}th{background:#eee}"
+                    + "td:first-child,td.text{text-align:left}</style></head><body>");
+            html.println("<h2>By command</h2>");
+            writeHtml(html, byCommand);
+            html.println("<h2>By page-object method</h2>");
+            writeHtml(html, byPageMethod);
+            html.println("<h2>Slowest " + top.size() + " operations</h2><table><tr><th>ms</th><th>Command</th>"
+                    + "<th>Locator / target</th><th>Page-object method</th><th>Test</th></tr>");
+            for (Sample s : top) {
+                html.println("<tr><td>" + String.format("%.1f", s.nanos / 1e6) + "</td><td class=\"text\">" + escape(s.command)
+                        + "</td><td class=\"text\">" + escape(s.locator) + "</td><td class=\"text\">" + escape(s.pageMethod)
+                        + "</td><td class=\"text\">" + escape(s.test) + "</td></tr>");
+            }
+            html.println("</table></body></html>");
+        }
+    }
+
+    private static void writeCsv(PrintWriter csv, String group, Map<String, Histogram> histograms) {
+        for (Map.Entry<String, Histogram> e : new TreeMap<String, Histogram>(histograms).entrySet()) {
+            Histogram h = e.getValue();
+            csv.println(group + ",\"" + e.getKey().replace("\"", "\"\"") + "\"," + h.count.sum() + ","
+                    + String.format("%.1f,%.1f,%.1f,%.1f,%.1f", h.total.sum() / 1e6, h.percentile(50), h.percentile(95),
+                    h.percentile(99), h.max.get() / 1e6));
+        }
+    }
+
+    private static void writeHtml(PrintWriter html, Map<String, Histogram> histograms) {
+        List<Map.Entry<String, Histogram>> rows = new ArrayList<Map.Entry<String, Histogram>>(histograms.entrySet());
+        rows.sort(Comparator.comparingLong((Map.Entry<String, Histogram> e) -> e.getValue().total.sum()).reversed());
+        html.println("<table><tr><th>Name</th><th>Count</th><th>Total ms</th><th>p50 ms</th><th>p95 ms</th>"
+                + "<th>p99 ms</th><th>Max ms</th></tr>");
+        for (Map.Entry<String, Histogram> e : rows) {
+            Histogram h = e.getValue();
+            html.println("<tr><td>" + escape(e.getKey()) + "</td><td>" + h.count.sum() + "</td><td>"
+                    + String.format("%.1f</td><td>%.1f</td><td>%.1f</td><td>%.1f</td><td>%.1f", h.total.sum() / 1e6,
+                    h.percentile(50), h.percentile(95), h.percentile(99), h.max.get() / 1e6) + "</td></tr>");
+        }
+        html.println("</table>");
+    }
+
+    private static String escape(String value) {
+        return value == null ? "" : value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /** Lock-free histogram with logarithmic buckets 10% wide, from 1 microsecond to about 30 minutes. */
+    static final class Histogram {
+        private static final double BASE = Math.log(1.1);
+        private static final int BUCKETS = 225;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long micros = Math.max(1, nanos / 1000);
+            buckets.incrementAndGet(Math.min(BUCKETS - 1, (int) (Math.log(micros) / BASE)));
+            count.increment();
+            total.add(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        /** @return the upper bound of the bucket holding the given percentile, in milliseconds */
+        double percentile(double percent) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * percent / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(Math.exp((i + 1) * BASE), max.get() / 1e3) / 1e3;
+                }
+            }
+            return max.get() / 1e6;
+        }
+    }
+
+    /** One slow operation. */
+    private static final class Sample {
+        private final String command;
+        private final String pageMethod;
+        private final String test;
+        private final String locator;
+        private final long nanos;
+
+        private Sample(String command, String pageMethod, String test, String locator, long nanos) {
+            this.command = command;
+            this.pageMethod = pageMethod;
+            this.test = test;
+            this.locator = locator;
+            this.nanos = nanos;
+        }
+    }
+}
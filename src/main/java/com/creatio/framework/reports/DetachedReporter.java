@@ -0,0 +1,87 @@
+package com.creatio.framework.reports;
+
+import java.util.List;
+
+import com.aventstack.extentreports.ExceptionTestContextImpl;
+import com.aventstack.extentreports.ExtentReporter;
+import com.aventstack.extentreports.SessionStatusStats;
+import com.aventstack.extentreports.SystemAttributeContext;
+import com.aventstack.extentreports.TestAttributeTestContextProvider;
+import com.aventstack.extentreports.model.Author;
+import com.aventstack.extentreports.model.Category;
+import com.aventstack.extentreports.model.Log;
+import com.aventstack.extentreports.model.ScreenCapture;
+import com.aventstack.extentreports.model.Test;
+
+/**
+ * Reporter that ignores every event. Running tests log into an {@code ExtentReports} instance
+ * with only this reporter attached; {@link Reports} writes them out through the event log when
+ * they end.
+ */
+final class DetachedReporter implements ExtentReporter {
+
+    static final DetachedReporter INSTANCE = new DetachedReporter();
+
+    private DetachedReporter() {
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void onTestStarted(Test test) {
+    }
+
+    @Override
+    public void onNodeStarted(Test node) {
+    }
+
+    @Override
+    public void onLogAdded(Test test, Log log) {
+    }
+
+    @Override
+    public void onCategoryAssigned(Test test, Category category) {
+    }
+
+    @Override
+    public void onAuthorAssigned(Test test, Author author) {
+    }
+
+    @Override
+    public void onScreenCaptureAdded(Test test, ScreenCapture screenCapture) {
+    }
+
+    @Override
+    public void setTestList(List<Test> testList) {
+    }
+
+    @Override
+    public void setTestRunnerLogs(List<String> logs) {
+    }
+
+    @Override
+    public void setCategoryContextInfo(TestAttributeTestContextProvider<Category> categoryContext) {
+    }
+
+    @Override
+    public void setExceptionContextInfo(ExceptionTestContextImpl exceptionContext) {
+    }
+
+    @Override
+    public void setSystemAttributeContext(SystemAttributeContext systemAttributeContext) {
+    }
+
+    @Override
+    public void setStatusCount(SessionStatusStats statusStats) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.creatio.framework.reports;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Small self-refreshing HTML page showing the progress of a running suite.
+ *
+ * <p>The page only holds the status counts and the most recent tests, so rewriting it costs the
+ * same at the first test as at the five-thousandth. Writes are throttled to one per second and
+ * replace the file atomically, so a browser never reads a half-written page.</p>
+ */
+class ProgressPage {
+
+    private static final int RECENT_TESTS = 25;
+    private static final long MIN_WRITE_INTERVAL_MS = 1000;
+
+    private final Path file;
+    private final String reportName;
+    private final long started = System.currentTimeMillis();
+    private final Map<String, Integer> counts = new TreeMap<String, Integer>();
+    private final Deque<String[]> recent = new ArrayDeque<String[]>();
+    private long lastWrite;
+
+    /**
+     * @param file       the page to write
+     * @param reportName file name of the full report, linked once the suite has finished
+     */
+    ProgressPage(Path file, String reportName) {
+        this.file = file;
+        this.reportName = reportName;
+        write(false);
+    }
+
+    /**
+     * Records a finished test and refreshes the page if the last refresh is old enough.
+     *
+     * @param name     the test name
+     * @param status   the final status of the test
+     * @param duration the test duration in milliseconds
+     */
+    synchronized void record(String name, String status, long duration) {
+        counts.merge(status, 1, Integer::sum);
+        recent.addFirst(new String[] {new SimpleDateFormat("HH:mm:ss").format(new Date()), name, status, duration + " ms"});
+        if (recent.size() > RECENT_TESTS) {
+            recent.removeLast();
+        }
+        if (System.currentTimeMillis() - lastWrite >= MIN_WRITE_INTERVAL_MS) {
+            write(false);
+        }
+    }
+
+    /** Writes the final state of the page and stops the auto refresh. */
+    synchronized void finish() {
+        write(true);
+    }
+
+    private void write(boolean finished) {
+        lastWrite = System.currentTimeMillis();
+        int total = 0;
+        for (int count : counts.values()) {
+            total += count;
+        }
+        StringBuilder page = new StringBuilder("<!DOCTYPE html><html><head><meta charset=\"utf-8\">");
+        if (!finished) {
+            page.append("<meta http-equiv=\"refresh\" content=\"5\">");
+        }
+        page.append("<title>Test Progress</title><style>body{font-family:sans-serif;font-size:13px}")
+                .append("table{border-collapse:collapse}td,th{border:1px solid #ccc;padding:3px 8px;text-align:left}")
+                .append(".PASS{color:#2e7d32}.FAIL,.FATAL,.ERROR{color:#c62828}.SKIP,.WARNING{color:#ef6c00}</style></head><body>")
+                .append("<h2>").append(finished ? "Run finished" : "Run in progress").append("</h2>")
+                .append("<p>").append(total).append(" test(s) finished in ")
+                .append((lastWrite - started) / 1000).append(" s");
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            page.append(" &middot; <span class=\"").append(count.getKey()).append("\">")
+                    .append(count.getKey()).append(": ").append(count.getValue()).append("</span>");
+        }
+        page.append("</p><table><tr><th>Finished</th><th>Test</th><th>Status</th><th>Duration</th></tr>");
+        for (String[] test : recent) {
+            page.append("<tr><td>").append(test[0]).append("</td><td>").append(escape(test[1]))
+                    .append("</td><td class=\"").append(test[2]).append("\">").append(test[2])
+                    .append("</td><td>").append(test[3]).append("</td></tr>");
+        }
+        page.append("</table>");
+        if (finished) {
+            page.append("<p><a href=\"").append(reportName).append("\">Full report</a></p>");
+        }
+        page.append("</body></html>");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, page.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
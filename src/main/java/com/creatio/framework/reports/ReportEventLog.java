@@ -0,0 +1,151 @@
+package com.creatio.framework.reports;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.model.Log;
+import com.aventstack.extentreports.model.ScreenCapture;
+import com.aventstack.extentreports.model.Test;
+import org.openqa.selenium.json.Json;
+
+/**
+ * Append-only on-disk log of finished tests, one compact JSON object per line.
+ *
+ * <p>Each finished test costs one line appended to the file, independent of how many tests ran
+ * before it; the HTML report is rendered from this log once, at the end of the suite, by
+ * {@link ReportRenderer}. Because lines are flushed as they are written, the log of an interrupted
+ * run still holds every test that finished.</p>
+ *
+ * <p>Event format: {@code name}, {@code status}, {@code start}/{@code end} (epoch millis),
+ * {@code logs} ({@code status}, {@code details}, {@code time}), {@code screenshots} (paths) and
+ * {@code nodes} (child tests, same format).</p>
+ */
+public class ReportEventLog {
+
+    private static final Json JSON = new Json();
+
+    private final Path file;
+    private final Writer writer;
+
+    /**
+     * Opens the log for writing.
+     *
+     * @param file   the log file; parent directories are created if missing
+     * @param append {@code true} to keep existing events, {@code false} to start a new log
+     * @throws IOException if the file cannot be opened
+     */
+    public ReportEventLog(Path file, boolean append) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /** @return the log file */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Appends a finished test, including its child nodes, and flushes it to disk.
+     *
+     * @param test the finished test
+     */
+    public void append(ExtentTest test) {
+        append(test, null);
+    }
+
+    /**
+     * Appends a finished test to be shown as a node of another test, e.g. one data row of a
+     * data-driven method under the method's entry.
+     *
+     * @param test   the finished test
+     * @param parent the name of the entry to nest it under, or {@code null} for a top-level entry
+     */
+    public synchronized void append(ExtentTest test, String parent) {
+        try {
+            Map<String, Object> event = toEvent(test.getModel());
+            if (parent != null) {
+                event.put("parent", parent);
+            }
+            JSON.newOutput(writer).setPrettyPrint(false).write(event);
+            writer.write(System.lineSeparator());
+            writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Closes the log; further appends are ignored. */
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads a log event by event, without loading the whole file.
+     *
+     * @param file     the log file
+     * @param consumer receives each event in the order it was written
+     * @throws IOException if the file cannot be read
+     */
+    public static void read(Path file, Consumer<Map<String, Object>> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    consumer.accept(JSON.toType(line, Json.MAP_TYPE));
+                }
+            }
+        }
+    }
+
+    private static Map<String, Object> toEvent(Test model) {
+        Map<String, Object> event = new LinkedHashMap<String, Object>();
+        event.put("name", model.getName());
+        event.put("status", model.getStatus().name());
+        event.put("start", model.getStartTime() == null ? null : model.getStartTime().getTime());
+        event.put("end", model.getEndTime() == null ? null : model.getEndTime().getTime());
+        if (model.getDescription() != null && !model.getDescription().isEmpty()) {
+            event.put("description", model.getDescription());
+        }
+        List<Map<String, Object>> logs = new ArrayList<Map<String, Object>>();
+        for (Log log : model.getLogContext().getAll()) {
+            Map<String, Object> entry = new LinkedHashMap<String, Object>();
+            entry.put("status", log.getStatus().name());
+            entry.put("details", log.getDetails());
+            entry.put("time", log.getTimestamp() == null ? null : log.getTimestamp().getTime());
+            logs.add(entry);
+        }
+        event.put("logs", logs);
+        if (model.hasMedia()) {
+            List<String> screenshots = new ArrayList<String>();
+            for (ScreenCapture capture : model.getScreenCaptureList()) {
+                screenshots.add(capture.getPath());
+            }
+            event.put("screenshots", screenshots);
+        }
+        if (model.hasChildren()) {
+            List<Map<String, Object>> nodes = new ArrayList<Map<String, Object>>();
+            for (Test child : model.getNodeContext().getAll()) {
+                nodes.add(toEvent(child));
+            }
+            event.put("nodes", nodes);
+        }
+        return event;
+    }
+}
@@ -0,0 +1,168 @@
+package com.creatio.framework.reports;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.model.Log;
+import com.aventstack.extentreports.model.Test;
+import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
+
+/**
+ * Renders the HTML report from one or more {@link ReportEventLog} files.
+ *
+ * <p>{@link Reports} calls it once at the end of the suite. It can also be run on its own, e.g. to
+ * rebuild the report of an interrupted run or to combine the logs of several runs:</p>
+ * <pre>
+ * java com.creatio.framework.reports.ReportRenderer Reports/AutomationTestReport.html Reports/events.jsonl
+ * </pre>
+ *
+ * <p>A directory argument stands for every {@code events*.jsonl} file in it, e.g. the
+ * {@code Reports} directories collected from the shards of a sharded run. Events that name a
+ * parent, such as the rows of a data-driven method, become nodes of one entry per parent name,
+ * even when they come from different logs.</p>
+ */
+public class ReportRenderer {
+
+    /**
+     * Renders the given event logs into a new HTML report.
+     *
+     * @param args the output HTML file followed by one or more event log files or directories
+     * @throws IOException if a log cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: ReportRenderer <report.html> <events.jsonl | directory>...");
+            return;
+        }
+        List<Path> logs = new ArrayList<Path>();
+        for (int i = 1; i < args.length; i++) {
+            logs.addAll(eventLogs(Paths.get(args[i])));
+        }
+        render(Paths.get(args[0]), logs);
+        System.out.println("Report written to " + args[0]);
+    }
+
+    /**
+     * Renders event logs into a new HTML report.
+     *
+     * @param report    the HTML file to write
+     * @param eventLogs the event logs to combine
+     * @throws IOException if a log cannot be read
+     */
+    public static void render(Path report, List<Path> eventLogs) throws IOException {
+        ExtentReports extent = new ExtentReports();
+        extent.attachReporter(new ExtentHtmlReporter(report.toString()));
+        Map<String, ExtentTest> parents = new HashMap<String, ExtentTest>();
+        for (Path log : eventLogs) {
+            replay(log, extent, parents);
+        }
+        extent.flush();
+    }
+
+    /**
+     * @param path an event log, or a directory holding {@code events*.jsonl} files
+     * @return the event logs, sorted by name for a directory
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Path> eventLogs(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Collections.singletonList(path);
+        }
+        List<Path> logs = new ArrayList<Path>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "events*.jsonl")) {
+            for (Path file : files) {
+                logs.add(file);
+            }
+        }
+        Collections.sort(logs);
+        return logs;
+    }
+
+    /**
+     * Adds every test of an event log to a report. The report is not flushed.
+     *
+     * @param eventLog the event log to read
+     * @param extent   the report to add the tests to
+     * @throws IOException if the log cannot be read
+     */
+    public static void replay(Path eventLog, ExtentReports extent) throws IOException {
+        replay(eventLog, extent, new HashMap<String, ExtentTest>());
+    }
+
+    private static void replay(Path eventLog, ExtentReports extent, Map<String, ExtentTest> parents) throws IOException {
+        ReportEventLog.read(eventLog, event -> {
+            String parentName = (String) event.get("parent");
+            if (parentName == null) {
+                replay(event, extent.createTest((String) event.get("name")));
+                return;
+            }
+            ExtentTest parent = parents.computeIfAbsent(parentName, extent::createTest);
+            ExtentTest node = parent.createNode((String) event.get("name"));
+            replay(event, node);
+            summarise(parent.getModel(), node.getModel());
+        });
+    }
+
+    /** Widens the parent's time span and status to cover a node replayed under it. */
+    private static void summarise(Test parent, Test node) {
+        List<Status> severity = Status.getStatusHierarchy();
+        boolean first = parent.getNodeContext().getAll().size() == 1;
+        if (first || severity.indexOf(node.getStatus()) < severity.indexOf(parent.getStatus())) {
+            parent.setStatus(node.getStatus());
+        }
+        if (node.getStartTime() != null && (first || node.getStartTime().before(parent.getStartTime()))) {
+            parent.setStartTime(node.getStartTime());
+        }
+        if (node.getEndTime() != null && (parent.getEndTime() == null || node.getEndTime().after(parent.getEndTime()))) {
+            parent.setEndTime(node.getEndTime());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void replay(Map<String, Object> event, ExtentTest test) {
+        Test model = test.getModel();
+        for (Map<String, Object> entry : (List<Map<String, Object>>) event.get("logs")) {
+            test.log(Status.valueOf((String) entry.get("status")), (String) entry.get("details"));
+            if (entry.get("time") != null) {
+                List<Log> logs = model.getLogContext().getAll();
+                logs.get(logs.size() - 1).setTimestamp(new Date(((Number) entry.get("time")).longValue()));
+            }
+        }
+        if (event.containsKey("screenshots")) {
+            for (String path : (List<String>) event.get("screenshots")) {
+                try {
+                    test.addScreenCaptureFromPath(path);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        if (event.containsKey("nodes")) {
+            for (Map<String, Object> node : (List<Map<String, Object>>) event.get("nodes")) {
+                replay(node, test.createNode((String) node.get("name")));
+            }
+        }
+        if (event.get("description") != null) {
+            model.setDescription((String) event.get("description"));
+        }
+        model.setStatus(Status.valueOf((String) event.get("status")));
+        if (event.get("start") != null) {
+            model.setStartTime(new Date(((Number) event.get("start")).longValue()));
+        }
+        if (event.get("end") != null) {
+            model.setEndTime(new Date(((Number) event.get("end")).longValue()));
+        }
+    }
+}
@@ -1,10 +1,20 @@
 package com.creatio.framework.reports;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.function.Consumer;
+
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeSuite;
 
 import com.aventstack.extentreports.ExtentReports;
 import com.aventstack.extentreports.ExtentTest;
 import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
+import com.creatio.framework.utilities.ConfigService;
+import com.creatio.framework.utilities.ConfigSnapshot;
 
 /**
  * Utility class for managing test reports using ExtentReports.
@@ -12,52 +22,224 @@ import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
  *
  * <p>This class uses the ExtentReports library to generate HTML reports for test execution.
  * It includes functionality to set up the report, create test logs, and flush the report data.</p>
+ *
+ * <p>Finished tests are appended to {@code Reports/events.jsonl} as they end and
+ * {@code Reports/progress.html} shows the state of the running suite. The full HTML report is
+ * rendered from the event log once, when the suite ends.</p>
  */
 public class Reports {
 
     // Initialize all classes
 
     /** Represents the HTML reporter used to generate the report file. */
-    public static ExtentHtmlReporter html; // white paper
+    private static ExtentHtmlReporter html; // white paper
 
     /** Represents the ExtentReports instance used to manage the report. */
-    public static ExtentReports extent; // printer
+    private static ExtentReports extent; // printer
+
+    /** Represents the ExtentTest entry of the running test, one per test thread. */
+    private static final ThreadLocal<ExtentTest> logger = new ThreadLocal<ExtentTest>(); // ink
+
+    /** Entry the running test is nested under, one per test thread; {@code null} for top-level tests. */
+    private static final ThreadLocal<String> parent = new ThreadLocal<String>();
+
+    /** Event log that finished tests are appended to. */
+    private static ReportEventLog eventLog;
 
-    /** Represents the ExtentTest instance used to log test details. */
-    public static ExtentTest logger; // ink
+    /** Progress page refreshed while the suite runs. */
+    private static ProgressPage progress;
+
+    /** Lines logged outside any test, e.g. from suite setup; one report entry when the suite ends. */
+    private static TestContext suiteLog;
+
+    /** Notes configuration reloads in the suite log. */
+    private static final Consumer<ConfigSnapshot> configReloaded = config -> {
+        TestContext log = suiteContext();
+        if (log != null) {
+            log.info("Configuration reloaded (version " + config.getVersion() + ")");
+        }
+    };
 
     /**
      * Sets up the ExtentReports configuration and initializes the HTML reporter.
      *
      * <p>This method is annotated with `@BeforeSuite` to ensure it runs before any test suite execution.
-     * It creates an HTML report file in the `Reports` directory under the user's working directory.</p>
+     * It creates an HTML report file in the `Reports` directory under the user's working directory.
+     * A sharded run adds the shard to the file names.</p>
      */
     @BeforeSuite(alwaysRun = true)
     public static void setupReport() {
-        html = new ExtentHtmlReporter(System.getProperty("user.dir") + "\\Reports\\AutomationTestReport.html");
+        String shard = shardSuffix();
+        Path dir = Paths.get(System.getProperty("user.dir"), "Reports");
+        String reportName = "AutomationTestReport" + shard + ".html";
+        html = new ExtentHtmlReporter(dir.resolve(reportName).toString());
         extent = new ExtentReports();
         extent.attachReporter(html);
+        try {
+            Files.createDirectories(dir);
+            eventLog = new ReportEventLog(dir.resolve("events" + shard + ".jsonl"), false);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        progress = new ProgressPage(dir.resolve("progress" + shard + ".html"), reportName);
+
+        StringBuilder config = new StringBuilder("version " + ConfigService.current().getVersion());
+        for (String note : ConfigService.notes()) {
+            config.append("; ").append(note);
+        }
+        extent.setSystemInfo("Configuration", config.toString());
+        ConfigService.removeListener(configReloaded);
+        ConfigService.addListener(configReloaded);
+    }
+
+    /**
+     * @return {@code -shard-<index>-of-<count>} when the suite runs sharded, so shards sharing a
+     *         working directory do not overwrite each other's files; otherwise an empty string
+     */
+    private static String shardSuffix() {
+        int count = Integer.getInteger("shard.count", 1);
+        return count > 1 ? "-shard-" + Integer.getInteger("shard.index", 1) + "-of-" + count : "";
     }
 
     /**
      * Starts reporting for a specific test case.
      *
-     * <p>This method creates a new test entry in the report using the provided test name.
-     * It initializes the `logger` object to log details for the test case.</p>
+     * <p>This method creates a new test entry using the provided test name and binds a
+     * {@link TestContext} to the calling thread, so tests running in parallel each log into their
+     * own report entry. The entry is kept outside the final report until the test ends, so running
+     * tests cost no report memory once they are written out.</p>
      *
      * @param testName The name of the test case to be reported.
      */
     public static void startReporting(String testName) {
-        logger = extent.createTest(testName);
+        startReporting(testName, null);
     }
 
     /**
-     * Stops reporting and flushes the report data to the file.
+     * Starts reporting for a test case shown as a node of another entry, such as one data row of a
+     * data-driven method. Rows running in parallel on different threads still end up together
+     * under one entry named {@code parentName} in the final report.
      *
-     * <p>This method ensures that all logged details are written to the report file.
-     * It should be called after all test cases have been executed.</p>
+     * @param testName   The name of the node, e.g. the row's parameters.
+     * @param parentName The name of the entry to nest it under, or {@code null} for a top-level entry.
+     */
+    public static void startReporting(String testName, String parentName) {
+        ExtentReports detached = new ExtentReports();
+        detached.attachReporter(DetachedReporter.INSTANCE);
+        logger.set(detached.createTest(testName));
+        parent.set(parentName);
+        TestContext.start(testName);
+    }
+
+    /**
+     * Returns the ExtentTest entry of the test running on the current thread.
+     *
+     * @return the current thread's {@link ExtentTest}, or {@code null} if reporting was not started
+     * @deprecated log through {@link TestContext#current()}, which also works from helper threads;
+     *             lines logged here appear before the buffered {@code TestContext} lines
+     */
+    @Deprecated
+    public static ExtentTest getLogger() {
+        return logger.get();
+    }
+
+    /**
+     * Returns the context for lines logged while no test runs on the calling thread, e.g. from
+     * {@code @BeforeSuite} methods. Its lines are reported as one {@code Suite log} entry when the
+     * suite ends.
+     *
+     * @return the suite-level context, or {@code null} if no report is being written
+     */
+    public static synchronized TestContext suiteContext() {
+        if (eventLog == null) {
+            return null;
+        }
+        if (suiteLog == null) {
+            suiteLog = TestContext.detached("Suite log");
+        }
+        return suiteLog;
+    }
+
+    /**
+     * Adds an entry to the system information section of the report.
+     *
+     * @param name  the entry name
+     * @param value the entry value
+     */
+    public static synchronized void setSystemInfo(String name, String value) {
+        if (extent != null) {
+            extent.setSystemInfo(name, value);
+        }
+    }
+
+    /**
+     * Stops reporting for the test running on the current thread.
+     *
+     * <p>The test is appended to the event log and the progress page is refreshed; the cost does
+     * not depend on how many tests finished before. The HTML report itself is written by
+     * {@link #finishReport()}.</p>
      */
     public static void stopReporting() {
+        ExtentTest test = logger.get();
+        TestContext context = TestContext.end();
+        if (test != null) {
+            if (context != null) {
+                test.getModel().setStartTime(new Date(context.getStartTime()));
+                context.writeTo(test);
+            }
+            test.getModel().setEndTime(new Date());
+            if (eventLog != null) {
+                eventLog.append(test, parent.get());
+            }
+            if (progress != null) {
+                Date start = test.getModel().getStartTime();
+                progress.record(test.getModel().getName(), test.getStatus().name(),
+                        start == null ? 0 : System.currentTimeMillis() - start.getTime());
+            }
+        }
+        logger.remove();
+        parent.remove();
+    }
+
+    /**
+     * Renders the HTML report from the event log and flushes it to the file, along with the
+     * command timing tables when {@code COMMAND_TIMING} is on.
+     *
+     * <p>This method is annotated with `@AfterSuite` so that the report is written exactly once,
+     * after all test cases have been executed.</p>
+     */
+    @AfterSuite(alwaysRun = true)
+    public static synchronized void finishReport() {
+        if (eventLog == null) {
+            return;
+        }
+        if (suiteLog != null && !suiteLog.isEmpty()) {
+            ExtentReports detached = new ExtentReports();
+            detached.attachReporter(DetachedReporter.INSTANCE);
+            ExtentTest test = detached.createTest(suiteLog.getName());
+            test.getModel().setStartTime(new Date(suiteLog.getStartTime()));
+            suiteLog.writeTo(test);
+            test.getModel().setEndTime(new Date());
+            eventLog.append(test, null);
+        }
+        suiteLog = null;
+        eventLog.close();
+        ScreenshotWriter.flush();
+        if (CommandTimings.ENABLED) {
+            try {
+                CommandTimings.writeReport(eventLog.getFile().getParent());
+                setSystemInfo("Command timings", "CommandTimings.html");
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            ReportRenderer.replay(eventLog.getFile(), extent);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
         extent.flush();
+        progress.finish();
+        eventLog = null;
     }
 }
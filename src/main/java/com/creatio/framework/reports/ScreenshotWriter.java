@@ -0,0 +1,212 @@
+package com.creatio.framework.reports;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import com.creatio.framework.utilities.ConfigService;
+
+/**
+ * Writes screenshots to the {@code Screenshots} directory on background threads.
+ *
+ * <p>The test thread only hashes the PNG bytes returned by the driver and queues them; it gets the
+ * final file path back immediately. Background writers recompress the image to JPEG and write a
+ * small thumbnail next to it ({@code <name>.thumb.jpg}). A frame identical to one already written
+ * in this run is not written again: its existing path is returned instead.</p>
+ *
+ * <p>The queue is bounded. When it is full, the test thread writes the screenshot itself, which
+ * slows capture down to the speed of the disk instead of growing memory without limit. Configured
+ * in {@code Config.properties} with {@code SCREENSHOT_FORMAT} ({@code jpg} or {@code png}),
+ * {@code SCREENSHOT_QUALITY}, {@code SCREENSHOT_THUMBNAIL_WIDTH}, {@code SCREENSHOT_QUEUE_SIZE}
+ * and {@code SCREENSHOT_WRITER_THREADS}.</p>
+ */
+public class ScreenshotWriter {
+
+    private static final String FORMAT = ConfigService.current().get("SCREENSHOT_FORMAT", "jpg").toLowerCase();
+    private static final float QUALITY = ConfigService.current().getFloat("SCREENSHOT_QUALITY", 0.8f);
+    private static final int THUMBNAIL_WIDTH = ConfigService.current().getInt("SCREENSHOT_THUMBNAIL_WIDTH", 320);
+    private static final int QUEUE_SIZE = ConfigService.current().getInt("SCREENSHOT_QUEUE_SIZE", 32);
+    private static final int THREADS = ConfigService.current().getInt("SCREENSHOT_WRITER_THREADS", 2);
+
+    /** Paths of the frames written in this run, by SHA-256 of their PNG bytes. */
+    private static final Map<String, String> written = new ConcurrentHashMap<String, String>();
+
+    private static ThreadPoolExecutor executor;
+
+    /**
+     * Queues a screenshot for writing.
+     *
+     * @param png      the PNG bytes returned by the driver
+     * @param fileName the file name without extension
+     * @return the path the screenshot is (or will be) written to; for a frame already written in
+     *         this run, the path of the earlier copy
+     */
+    public static String submit(byte[] png, String fileName) {
+        Path dir = Paths.get(System.getProperty("user.dir"), "Screenshots");
+        Path target = dir.resolve(fileName + "." + FORMAT);
+        String hash = sha256(png);
+        String existing = written.get(hash);
+        if (existing != null) {
+            return existing;
+        }
+        Runnable task = () -> {
+            if (write(png, target)) {
+                written.putIfAbsent(hash, target.toString());
+            }
+        };
+        if (!enqueue(task)) {
+            // Queue full: write on the test thread, outside the lock so other threads can still queue
+            task.run();
+        }
+        return target.toString();
+    }
+
+    /**
+     * Waits until every queued screenshot is on disk. Called before the report is rendered.
+     */
+    public static synchronized void flush() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    /**
+     * Hands a write to the background writers. Holds the lock {@link #flush()} takes, so a write is
+     * never handed to an executor that is shutting down.
+     *
+     * @return {@code false} if the queue is full
+     */
+    private static synchronized boolean enqueue(Runnable task) {
+        try {
+            executor().execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private static synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            AtomicInteger count = new AtomicInteger();
+            executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), task -> {
+                        Thread thread = new Thread(task, "screenshot-writer-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+        return executor;
+    }
+
+    /**
+     * @return {@code true} if the screenshot is on disk
+     */
+    private static boolean write(byte[] png, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            if (FORMAT.equals("png")) {
+                Files.write(temp, png);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            }
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+            if (decoded == null) {
+                throw new IOException("Screenshot for " + target.getFileName() + " is not a readable image");
+            }
+            BufferedImage image = toRgb(decoded);
+            writeJpeg(image, temp, QUALITY);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (THUMBNAIL_WIDTH > 0 && image.getWidth() > THUMBNAIL_WIDTH) {
+                String name = target.getFileName().toString();
+                Path thumbnail = target.resolveSibling(name.substring(0, name.lastIndexOf('.')) + ".thumb.jpg");
+                writeJpeg(scale(image, THUMBNAIL_WIDTH), thumbnail, 0.7f);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // A writer thread must survive a bad frame; the test only loses this screenshot
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /** JPEG has no alpha channel: flatten onto white. */
+    private static BufferedImage toRgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.drawImage(source, 0, 0, Color.WHITE, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width) {
+        int height = Math.max(1, source.getHeight() * width / source.getWidth());
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path file, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        try (OutputStream out = Files.newOutputStream(file); ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
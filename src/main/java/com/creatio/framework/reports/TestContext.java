@@ -0,0 +1,293 @@
+package com.creatio.framework.reports;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.model.Log;
+
+/**
+ * State of the test running on the current thread: its report lines, child nodes and attributes.
+ *
+ * <p>Log calls only append to a lock-free queue owned by the test, so parallel tests never wait on
+ * each other or on the report. When the test ends, {@link Reports#stopReporting()} attaches the
+ * buffered lines, in the order they were logged, to the test's own report entry.</p>
+ *
+ * <pre>
+ * TestContext.current().info("Cookie banner is displayed");
+ * TestContext row = TestContext.current().node("Row 3");
+ * row.pass("Saved");
+ * </pre>
+ *
+ * <p>Work handed to other threads keeps logging into the right test when it is wrapped with
+ * {@link #wrap(Runnable)} or {@link #wrap(Callable)}.</p>
+ */
+public final class TestContext {
+
+    private static final ThreadLocal<TestContext> current = new ThreadLocal<TestContext>();
+
+    private final String name;
+    private final long startTime = System.currentTimeMillis();
+    private final ConcurrentLinkedQueue<Entry> entries = new ConcurrentLinkedQueue<Entry>();
+    private final ConcurrentLinkedQueue<TestContext> nodes = new ConcurrentLinkedQueue<TestContext>();
+    private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+    private TestContext(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Starts a new context and binds it to the calling thread.
+     *
+     * @param name the test name
+     * @return the new context
+     */
+    static TestContext start(String name) {
+        TestContext context = new TestContext(name);
+        current.set(context);
+        return context;
+    }
+
+    /**
+     * Creates a context that is not bound to any thread, e.g. for lines logged outside a test.
+     *
+     * @param name the report entry name
+     * @return the new context
+     */
+    static TestContext detached(String name) {
+        return new TestContext(name);
+    }
+
+    /**
+     * Unbinds the context of the calling thread.
+     *
+     * @return the context that was bound, or {@code null}
+     */
+    static TestContext end() {
+        TestContext context = current.get();
+        current.remove();
+        return context;
+    }
+
+    /**
+     * @return the context of the test running on the calling thread, or {@code null} outside a test
+     */
+    public static TestContext current() {
+        return current.get();
+    }
+
+    /** @return the test or node name */
+    public String getName() {
+        return name;
+    }
+
+    /** @return when the context was started, in epoch milliseconds */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Creates a child node, shown nested under this test in the report.
+     *
+     * @param nodeName the node name
+     * @return the node's context; it is not bound to any thread
+     */
+    public TestContext node(String nodeName) {
+        TestContext node = new TestContext(nodeName);
+        nodes.add(node);
+        return node;
+    }
+
+    /**
+     * Buffers a report line.
+     *
+     * @param status  the line status
+     * @param message the message
+     * @return this context
+     */
+    public TestContext log(Status status, String message) {
+        entries.add(new Entry(status, message, null));
+        return this;
+    }
+
+    /**
+     * Buffers an informational report line.
+     *
+     * @param message the message
+     * @return this context
+     */
+    public TestContext info(String message) {
+        return log(Status.INFO, message);
+    }
+
+    /**
+     * Buffers a passed check.
+     *
+     * @param message the message
+     * @return this context
+     */
+    public TestContext pass(String message) {
+        return log(Status.PASS, message);
+    }
+
+    /**
+     * Buffers a failed check. The line marks the report entry as failed; it does not stop the test.
+     *
+     * @param message the message
+     * @return this context
+     */
+    public TestContext fail(String message) {
+        return log(Status.FAIL, message);
+    }
+
+    /**
+     * Buffers a warning, e.g. a fallback that let the test go on.
+     *
+     * @param message the message
+     * @return this context
+     */
+    public TestContext warning(String message) {
+        return log(Status.WARNING, message);
+    }
+
+    /**
+     * Buffers a line explaining why the test or a step was skipped.
+     *
+     * @param message the message
+     * @return this context
+     */
+    public TestContext skip(String message) {
+        return log(Status.SKIP, message);
+    }
+
+    /**
+     * Buffers a screenshot to attach to the report entry.
+     *
+     * @param path the screenshot file path
+     * @return this context
+     */
+    public TestContext addScreenCapture(String path) {
+        entries.add(new Entry(null, null, path));
+        return this;
+    }
+
+    /**
+     * Stores a value for the rest of the test, visible to every thread working for it.
+     *
+     * @param key   the attribute name
+     * @param value the value; {@code null} removes the attribute
+     */
+    public void setAttribute(String key, Object value) {
+        if (value == null) {
+            attributes.remove(key);
+        } else {
+            attributes.put(key, value);
+        }
+    }
+
+    /**
+     * @param key the attribute name
+     * @return the stored value, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(String key) {
+        return (T) attributes.get(key);
+    }
+
+    /**
+     * Binds this context to the thread running the task for the duration of the task.
+     *
+     * @param task the task to run on another thread
+     * @return the wrapped task
+     */
+    public Runnable wrap(Runnable task) {
+        return () -> {
+            TestContext previous = current.get();
+            current.set(this);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * Binds this context to the thread running the task for the duration of the task.
+     *
+     * @param task the task to run on another thread
+     * @return the wrapped task
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+        return () -> {
+            TestContext previous = current.get();
+            current.set(this);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(TestContext previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+
+    /** @return {@code true} if no line, screenshot or node is buffered */
+    boolean isEmpty() {
+        return entries.isEmpty() && nodes.isEmpty();
+    }
+
+    /**
+     * Moves the buffered lines and nodes into a report entry, keeping their order and timestamps.
+     *
+     * @param test the report entry of this context
+     */
+    void writeTo(ExtentTest test) {
+        Entry entry;
+        while ((entry = entries.poll()) != null) {
+            if (entry.screenshot != null) {
+                try {
+                    test.addScreenCaptureFromPath(entry.screenshot);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                test.log(entry.status, entry.message);
+                List<Log> logs = test.getModel().getLogContext().getAll();
+                logs.get(logs.size() - 1).setTimestamp(new Date(entry.time));
+            }
+        }
+        TestContext node;
+        while ((node = nodes.poll()) != null) {
+            ExtentTest child = test.createNode(node.name);
+            child.getModel().setStartTime(new Date(node.startTime));
+            node.writeTo(child);
+        }
+    }
+
+    /** One buffered report line or screenshot. */
+    private static final class Entry {
+        private final Status status;
+        private final String message;
+        private final String screenshot;
+        private final long time = System.currentTimeMillis();
+
+        private Entry(Status status, String message, String screenshot) {
+            this.status = status;
+            this.message = message;
+            this.screenshot = screenshot;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.creatio.framework.utilities;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * The framework configuration, loaded once per JVM and shared by every thread.
+ *
+ * <p>Values are layered, later layers overriding earlier ones:</p>
+ * <ol>
+ *     <li>{@code Config/Config.properties}</li>
+ *     <li>{@code Config/Config-<env>.properties}, when an environment is named by the {@code env}
+ *         system property, the {@code CREATIO_ENV} environment variable or the {@code ENV} key</li>
+ *     <li>environment variables: {@code CREATIO_<KEY>} for any key, or the plain key name for keys
+ *         defined in the files, e.g. {@code APP_URL}</li>
+ *     <li>system properties with upper-case names, e.g. {@code -DRETRY_MODE=off}</li>
+ * </ol>
+ *
+ * <p>{@link #current()} returns an immutable {@link ConfigSnapshot} without any file access.
+ * Unless {@code CONFIG_WATCH=false}, a daemon thread watches the {@code Config} directory and
+ * publishes a new snapshot when one of the files changes; {@link #addListener(Consumer)} is told
+ * about it. Settings that size pools or threads are read once when their class is loaded, so
+ * reloads only affect values read at use time, such as the application URL.</p>
+ */
+public class ConfigService {
+
+    private static final String BASE_FILE = "Config.properties";
+    private static final String ENV_PREFIX = "CREATIO_";
+    private static final Pattern KEY = Pattern.compile("[A-Z][A-Z0-9_]*");
+
+    /** How long to wait for an editor to finish writing before reloading. */
+    private static final long SETTLE_MILLIS = 200;
+
+    private static final List<Consumer<ConfigSnapshot>> listeners = new CopyOnWriteArrayList<Consumer<ConfigSnapshot>>();
+    private static final List<String> notes = new CopyOnWriteArrayList<String>();
+    private static volatile ConfigSnapshot snapshot;
+    private static Thread watcher;
+
+    /**
+     * @return the configuration in effect, loaded on first use
+     */
+    public static ConfigSnapshot current() {
+        ConfigSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (ConfigService.class) {
+                if (snapshot == null) {
+                    snapshot = load(null);
+                    if (snapshot == null) {
+                        snapshot = new ConfigSnapshot(new LinkedHashMap<String, String>(), new LinkedHashMap<String, String>(), 1);
+                    }
+                    if (snapshot.getBoolean("CONFIG_WATCH", true)) {
+                        startWatching();
+                    }
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reads the files again and publishes a new snapshot if any value changed.
+     *
+     * @return the configuration in effect afterwards
+     */
+    public static synchronized ConfigSnapshot reload() {
+        ConfigSnapshot previous = current();
+        ConfigSnapshot loaded = load(previous);
+        if (loaded != null && !loaded.values().equals(previous.values())) {
+            snapshot = loaded;
+            for (Consumer<ConfigSnapshot> listener : listeners) {
+                try {
+                    listener.accept(loaded);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return what the first load noticed, e.g. a missing environment file, for the report's system
+     *         information; empty when every file was found
+     */
+    public static List<String> notes() {
+        current();
+        return Collections.unmodifiableList(notes);
+    }
+
+    /**
+     * @param listener called with each new snapshot after a reload that changed a value
+     */
+    public static void addListener(Consumer<ConfigSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener added before
+     */
+    public static void removeListener(Consumer<ConfigSnapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Builds a snapshot from all layers.
+     *
+     * @param previous the snapshot in effect, or {@code null} on the first load
+     * @return the new snapshot, or {@code null} if the base file is missing and nothing was loaded
+     *         before; when a reload finds it missing (e.g. mid-save) the previous snapshot is kept
+     */
+    private static ConfigSnapshot load(ConfigSnapshot previous) {
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        Map<String, String> sources = new LinkedHashMap<String, String>();
+        try {
+            put(values, sources, PropUtil.readFile(PropUtil.configDir().resolve(BASE_FILE)), BASE_FILE);
+        } catch (NoSuchFileException e) {
+            if (previous != null) {
+                return previous;
+            }
+            notes.add("No " + e.getFile() + "; using environment, system properties and defaults");
+        } catch (IOException e) {
+            e.printStackTrace();
+            return previous;
+        }
+
+        String env = environmentName(values);
+        if (env != null) {
+            String envFile = "Config-" + env + ".properties";
+            try {
+                put(values, sources, PropUtil.readFile(PropUtil.configDir().resolve(envFile)), envFile);
+            } catch (NoSuchFileException e) {
+                if (previous == null) {
+                    notes.add("No " + envFile + " for environment '" + env + "'");
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        for (Map.Entry<String, String> variable : System.getenv().entrySet()) {
+            String name = variable.getKey();
+            if (name.startsWith(ENV_PREFIX) && name.length() > ENV_PREFIX.length()) {
+                values.put(name.substring(ENV_PREFIX.length()), variable.getValue().trim());
+                sources.put(name.substring(ENV_PREFIX.length()), "environment");
+            }
+        }
+        for (String key : values.keySet().toArray(new String[0])) {
+            String value = System.getenv(key);
+            if (value != null && System.getenv(ENV_PREFIX + key) == null) {
+                values.put(key, value.trim());
+                sources.put(key, "environment");
+            }
+        }
+
+        Properties system = System.getProperties();
+        for (String name : system.stringPropertyNames()) {
+            if (KEY.matcher(name).matches()) {
+                values.put(name, system.getProperty(name).trim());
+                sources.put(name, "system property");
+            }
+        }
+        return new ConfigSnapshot(values, sources, previous == null ? 1 : previous.getVersion() + 1);
+    }
+
+    private static void put(Map<String, String> values, Map<String, String> sources, Properties file, String source) {
+        for (String key : file.stringPropertyNames()) {
+            values.put(key, file.getProperty(key).trim());
+            sources.put(key, source);
+        }
+    }
+
+    private static String environmentName(Map<String, String> base) {
+        String env = System.getProperty("env");
+        if (env == null) {
+            env = System.getenv(ENV_PREFIX + "ENV");
+        }
+        if (env == null) {
+            env = base.get("ENV");
+        }
+        return env == null || env.trim().isEmpty() ? null : env.trim();
+    }
+
+    private static void startWatching() {
+        Path dir = PropUtil.configDir();
+        if (watcher != null || !Files.isDirectory(dir)) {
+            return;
+        }
+        WatchService service;
+        try {
+            service = dir.getFileSystem().newWatchService();
+            dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        watcher = new Thread(() -> watch(service), "config-watch");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private static void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean relevant = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        String file = String.valueOf(event.context());
+                        relevant |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                                || file.equals(BASE_FILE) || (file.startsWith("Config-") && file.endsWith(".properties"));
+                    }
+                    key.reset();
+                    // Editors write in several steps; collect them into one reload
+                    key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                if (relevant) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watching stops with the JVM
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.creatio.framework.utilities;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * One immutable view of the configuration, as published by {@link ConfigService}.
+ *
+ * <p>Values are trimmed. The typed getters return the default when a key is missing and throw
+ * {@link IllegalArgumentException} naming the key when a value cannot be parsed. Read several
+ * related keys from the same snapshot to get a consistent set, even while a reload is published.</p>
+ */
+public final class ConfigSnapshot {
+
+    private final Map<String, String> values;
+    private final Map<String, String> sources;
+    private final long version;
+    private final Instant loadedAt;
+
+    ConfigSnapshot(Map<String, String> values, Map<String, String> sources, long version) {
+        this.values = Collections.unmodifiableMap(values);
+        this.sources = Collections.unmodifiableMap(sources);
+        this.version = version;
+        this.loadedAt = Instant.now();
+    }
+
+    /**
+     * @param key the key
+     * @return the value, or {@code null} if the key is not set
+     */
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * @param key          the key
+     * @param defaultValue the value to return if the key is not set
+     * @return the value
+     */
+    public String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    /** @return the value as an int, or {@code defaultValue} if the key is not set */
+    public int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw invalid(key, value, "an integer");
+        }
+    }
+
+    /** @return the value as a long, or {@code defaultValue} if the key is not set */
+    public long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw invalid(key, value, "an integer");
+        }
+    }
+
+    /** @return the value as a float, or {@code defaultValue} if the key is not set */
+    public float getFloat(String key, float defaultValue) {
+        String value = values.get(key);
+        try {
+            return value == null ? defaultValue : Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            throw invalid(key, value, "a number");
+        }
+    }
+
+    /**
+     * @return {@code true} only for the value {@code true}, ignoring case, or {@code defaultValue}
+     *         if the key is not set
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * @return every key that is set
+     */
+    public Set<String> keys() {
+        return values.keySet();
+    }
+
+    /**
+     * @param key the key
+     * @return where the value comes from, e.g. {@code Config.properties}, {@code Config-qa.properties},
+     *         {@code environment} or {@code system property}; {@code null} if the key is not set
+     */
+    public String getSource(String key) {
+        return sources.get(key);
+    }
+
+    /**
+     * @return the number of this snapshot, increased by every reload that changed a value
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return when the snapshot was loaded
+     */
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * @return a copy of the values, for code that expects {@link Properties}; changing it does not
+     *         change the configuration
+     */
+    public Properties asProperties() {
+        Properties prop = new Properties();
+        prop.putAll(values);
+        return prop;
+    }
+
+    Map<String, String> values() {
+        return values;
+    }
+
+    private IllegalArgumentException invalid(String key, String value, String expected) {
+        return new IllegalArgumentException("Config " + key + " (" + sources.get(key) + ") must be " + expected + ": '" + value + "'");
+    }
+}
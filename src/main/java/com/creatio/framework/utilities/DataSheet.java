@@ -0,0 +1,159 @@
+package com.creatio.framework.utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Immutable rows of one test-data sheet, as held by {@link TestDataStore}.
+ *
+ * <p>Lookups by column value use an index built the first time a column is queried, so repeated
+ * lookups do not scan the sheet. Rows handed out are copies; callers may change them freely.</p>
+ *
+ * <pre>
+ * DataSheet users = TestDataStore.sheet("TestData.xlsx", "verifyInvalidLogin");
+ * Map&lt;String, String&gt; admin = users.first("Username", "Admin");
+ * Iterator&lt;Object[]&gt; rows = users.where(row -&gt; !row.get("Password").isEmpty());
+ * </pre>
+ */
+public class DataSheet {
+
+    private final String name;
+    private final List<String> header;
+    private final List<String[]> rows;
+    private final Map<String, Map<String, List<Integer>>> indexes = new ConcurrentHashMap<String, Map<String, List<Integer>>>();
+
+    DataSheet(String name, List<String> header, List<String[]> rows) {
+        this.name = name;
+        this.header = Collections.unmodifiableList(new ArrayList<String>(header));
+        this.rows = rows;
+    }
+
+    /** @return the sheet name */
+    public String getName() {
+        return name;
+    }
+
+    /** @return the column names */
+    public List<String> getHeader() {
+        return header;
+    }
+
+    /** @return the number of data rows */
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return every row, for use as the return value of a TestNG {@code @DataProvider}
+     */
+    public Iterator<Object[]> iterator() {
+        return select(null);
+    }
+
+    /**
+     * @param index the zero-based data row
+     * @return the row as column name to value
+     */
+    public Map<String, String> row(int index) {
+        return toMap(rows.get(index));
+    }
+
+    /**
+     * Finds the rows with a given value in a column.
+     *
+     * @param column the column name
+     * @param value  the value to match exactly
+     * @return the matching rows as column name to value, in sheet order; empty if none match
+     * @throws IllegalArgumentException if the sheet has no such column
+     */
+    public List<Map<String, String>> rowsBy(String column, String value) {
+        List<Map<String, String>> matches = new ArrayList<Map<String, String>>();
+        for (int index : index(column).getOrDefault(value, Collections.<Integer>emptyList())) {
+            matches.add(toMap(rows.get(index)));
+        }
+        return matches;
+    }
+
+    /**
+     * @param column the column name
+     * @param value  the value to match exactly
+     * @return the first row with that value, or {@code null}
+     * @throws IllegalArgumentException if the sheet has no such column
+     */
+    public Map<String, String> first(String column, String value) {
+        List<Integer> matches = index(column).get(value);
+        return matches == null ? null : toMap(rows.get(matches.get(0)));
+    }
+
+    /**
+     * Selects a subset of the rows, for use as the return value of a TestNG {@code @DataProvider}.
+     *
+     * @param filter receives each row as column name to value
+     * @return the matching rows, filtered lazily as TestNG asks for them
+     */
+    public Iterator<Object[]> where(Predicate<Map<String, String>> filter) {
+        return select(filter);
+    }
+
+    private Iterator<Object[]> select(Predicate<Map<String, String>> filter) {
+        Iterator<String[]> source = rows.iterator();
+        return new Iterator<Object[]>() {
+            private Object[] next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && source.hasNext()) {
+                    String[] row = source.next();
+                    if (filter == null || filter.test(toMap(row))) {
+                        next = row.clone();
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Object[] row = next;
+                next = null;
+                return row;
+            }
+        };
+    }
+
+    private Map<String, List<Integer>> index(String column) {
+        int position = header.indexOf(column);
+        if (position < 0) {
+            throw new IllegalArgumentException("No column '" + column + "' in sheet " + name);
+        }
+        return indexes.computeIfAbsent(column, c -> {
+            Map<String, List<Integer>> index = new HashMap<String, List<Integer>>();
+            for (int i = 0; i < rows.size(); i++) {
+                index.computeIfAbsent(rows.get(i)[position], v -> new ArrayList<Integer>(1)).add(i);
+            }
+            return index;
+        });
+    }
+
+    private Map<String, String> toMap(String[] row) {
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        for (int c = 0; c < header.size(); c++) {
+            values.put(header.get(c), row[c]);
+        }
+        return values;
+    }
+
+    List<String[]> rows() {
+        return rows;
+    }
+}
@@ -0,0 +1,272 @@
+package com.creatio.framework.utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.xml.sax.SAXException;
+
+/**
+ * Reads one sheet of an {@code .xlsx} file row by row, without loading the workbook.
+ *
+ * <p>The sheet XML is pulled through a streaming parser, so of the sheet itself only the current
+ * row is held in memory and the first row is available as soon as it has been read. The
+ * workbook's shared strings table, where Excel stores the text of string cells, is read into
+ * memory when the file is opened; its size grows with the number of distinct strings in the
+ * workbook, not with the number of rows. The first row holds the column names; every following non-empty row is returned as an
+ * {@code Object[]} of strings with one entry per column, ready to be returned from a TestNG
+ * {@code @DataProvider}. Values are returned as stored: numbers without formatting, formulas as
+ * their cached result.</p>
+ *
+ * <p>The file is closed when the last row has been read, or by {@link #close()} when iteration
+ * stops early.</p>
+ */
+public class ExcelReader implements Iterator<Object[]>, Closeable {
+
+    private final OPCPackage pkg;
+    private final InputStream sheet;
+    private final XMLStreamReader xml;
+    private final SharedStrings strings;
+    private final List<String> header;
+
+    private Object[] next;
+    private boolean closed;
+
+    /**
+     * @param pkg the package to close with the reader, or {@code null} if the caller closes it
+     */
+    private ExcelReader(OPCPackage pkg, InputStream sheet, SharedStrings strings) throws XMLStreamException {
+        this.pkg = pkg;
+        this.sheet = sheet;
+        this.strings = strings;
+        this.xml = XMLHelper.newXMLInputFactory().createXMLStreamReader(sheet);
+        List<String> first = readRow();
+        this.header = first == null ? Collections.<String>emptyList() : Collections.unmodifiableList(first);
+    }
+
+    /**
+     * Opens a sheet and reads its header row.
+     *
+     * @param file      the {@code .xlsx} file
+     * @param sheetName the name of the sheet
+     * @return a reader positioned after the header row
+     * @throws IOException if the file cannot be read or has no sheet of that name
+     */
+    public static ExcelReader open(Path file, String sheetName) throws IOException {
+        OPCPackage pkg = null;
+        InputStream sheet = null;
+        try {
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(pkg);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext() && sheet == null) {
+                InputStream candidate = sheets.next();
+                if (sheets.getSheetName().equals(sheetName)) {
+                    sheet = candidate;
+                } else {
+                    candidate.close();
+                }
+            }
+            if (sheet == null) {
+                throw new IOException("No sheet named '" + sheetName + "' in " + file);
+            }
+            return new ExcelReader(pkg, sheet, new ReadOnlySharedStringsTable(pkg, false));
+        } catch (OpenXML4JException | SAXException | XMLStreamException | RuntimeException e) {
+            closeQuietly(sheet, pkg);
+            throw new IOException("Cannot read " + file + ": " + e.getMessage(), e);
+        } catch (IOException e) {
+            closeQuietly(sheet, pkg);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads every sheet of a workbook in one pass over the file.
+     *
+     * @param file     the {@code .xlsx} file
+     * @param consumer receives each sheet name with a reader positioned after its header row;
+     *                 the reader is closed when the consumer returns
+     * @throws IOException if the file cannot be read
+     */
+    public static void readAll(Path file, BiConsumer<String, ExcelReader> consumer) throws IOException {
+        OPCPackage pkg = null;
+        try {
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStrings strings = new ReadOnlySharedStringsTable(pkg, false);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                InputStream sheet = sheets.next();
+                try (ExcelReader rows = new ExcelReader(null, sheet, strings)) {
+                    consumer.accept(sheets.getSheetName(), rows);
+                }
+            }
+        } catch (OpenXML4JException | SAXException | XMLStreamException | RuntimeException e) {
+            throw new IOException("Cannot read " + file + ": " + e.getMessage(), e);
+        } finally {
+            closeQuietly(null, pkg);
+        }
+    }
+
+    /**
+     * @return the column names from the first row
+     */
+    public List<String> getHeader() {
+        return header;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !closed) {
+            List<String> row = readRow();
+            if (row == null) {
+                close();
+            } else if (!isBlank(row)) {
+                next = row.subList(0, header.size()).toArray(new Object[0]);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Object[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object[] row = next;
+        next = null;
+        return row;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                xml.close();
+            } catch (XMLStreamException e) {
+                e.printStackTrace();
+            }
+            closeQuietly(sheet, pkg);
+        }
+    }
+
+    /**
+     * Reads the cell values of the next {@code <row>}, padded to the header width.
+     *
+     * @return the values, or {@code null} at the end of the sheet
+     */
+    private List<String> readRow() {
+        try {
+            while (xml.hasNext()) {
+                if (xml.next() == XMLStreamConstants.START_ELEMENT && "row".equals(xml.getLocalName())) {
+                    return readCells();
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            close();
+            throw new IllegalStateException("Cannot parse sheet: " + e.getMessage(), e);
+        }
+    }
+
+    private List<String> readCells() throws XMLStreamException {
+        List<String> values = new ArrayList<String>(header == null ? 16 : header.size());
+        String type = null;
+        String reference = null;
+        StringBuilder text = new StringBuilder();
+        boolean inValue = false;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = xml.getLocalName();
+                if ("c".equals(name)) {
+                    type = xml.getAttributeValue(null, "t");
+                    reference = xml.getAttributeValue(null, "r");
+                    text.setLength(0);
+                } else if ("v".equals(name) || "t".equals(name)) {
+                    inValue = true;
+                }
+            } else if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) && inValue) {
+                text.append(xml.getText());
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                String name = xml.getLocalName();
+                if ("v".equals(name) || "t".equals(name)) {
+                    inValue = false;
+                } else if ("c".equals(name)) {
+                    int column = reference == null ? values.size() : column(reference);
+                    while (values.size() < column) {
+                        values.add("");
+                    }
+                    values.add(value(type, text.toString()));
+                } else if ("row".equals(name)) {
+                    break;
+                }
+            }
+        }
+        int width = header == null ? values.size() : header.size();
+        while (values.size() < width) {
+            values.add("");
+        }
+        return values;
+    }
+
+    private String value(String type, String raw) {
+        if ("s".equals(type)) {
+            return raw.isEmpty() ? "" : strings.getItemAt(Integer.parseInt(raw)).getString();
+        }
+        if ("b".equals(type)) {
+            return "1".equals(raw) ? "TRUE" : "FALSE";
+        }
+        return raw;
+    }
+
+    /** Zero-based column of a cell reference such as {@code "AB12"}. */
+    private static int column(String reference) {
+        int column = 0;
+        for (int i = 0; i < reference.length() && Character.isLetter(reference.charAt(i)); i++) {
+            column = column * 26 + (reference.charAt(i) - 'A' + 1);
+        }
+        return column - 1;
+    }
+
+    private static boolean isBlank(List<String> row) {
+        for (String value : row) {
+            if (!value.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void closeQuietly(InputStream sheet, OPCPackage pkg) {
+        try {
+            if (sheet != null) {
+                sheet.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (pkg != null) {
+            pkg.revert();
+        }
+    }
+}
@@ -1,19 +1,22 @@
 package com.creatio.framework.utilities;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-
 /**
  * Utility class for handling Excel files.
  * Provides methods to read data from Excel sheets and return it in various formats.
+ *
+ * <p>All methods read the sheet with {@link ExcelReader}, which streams it row by row instead of
+ * loading the whole workbook, and close the file when they are done.</p>
  */
 public class ExcelUtils {
 
@@ -26,42 +29,20 @@ public class ExcelUtils {
      * @param sheetName The name of the sheet within the Excel file to read data from.
      * @return A list of maps, where each map contains key-value pairs representing column names and their corresponding cell values.
      *         If the file is not found or an error occurs during reading, an empty list is returned.
-     * @throws FileNotFoundException If the specified file is not found.
-     * @throws IOException If an I/O error occurs while reading the file.
      */
     public static List<Map<String, String>> readData(String fileName, String sheetName) {
         List<Map<String, String>> data = new ArrayList<Map<String, String>>();
 
-        try {
-            // Read the Excel file using Java
-            FileInputStream fis = new FileInputStream(System.getProperty("user.dir") + "\\TestData\\" + fileName);
-
-            // Load the file into Excel-related classes
-            XSSFWorkbook wb = new XSSFWorkbook(fis);
-
-            // Read the data from the specified sheet
-            XSSFSheet sh = wb.getSheet(sheetName);
-
-            // Get the total rows and columns having data
-            int totalRows = sh.getPhysicalNumberOfRows();
-            int totalColumns = sh.getRow(0).getPhysicalNumberOfCells();
-
-            // Loop to iterate over rows
-            for (int r = 1; r < totalRows; r++) {
+        try (ExcelReader reader = ExcelReader.open(testDataFile(fileName), sheetName)) {
+            List<String> columns = reader.getHeader();
+            while (reader.hasNext()) {
+                Object[] row = reader.next();
                 Map<String, String> rowData = new HashMap<String, String>();
-
-                // Loop to iterate over columns
-                for (int c = 0; c < totalColumns; c++) {
-                    String columnName = sh.getRow(0).getCell(c).getStringCellValue();
-                    String columnValue = sh.getRow(r).getCell(c).getStringCellValue();
-                    rowData.put(columnName, columnValue);
+                for (int c = 0; c < columns.size(); c++) {
+                    rowData.put(columns.get(c), (String) row[c]);
                 }
-
                 data.add(rowData);
             }
-
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -78,43 +59,46 @@ public class ExcelUtils {
      * @param sheetName The name of the sheet within the Excel file to read data from.
      * @return A 2D array of strings containing the data from the specified sheet.
      *         If the file is not found or an error occurs during reading, a null array is returned.
-     * @throws FileNotFoundException If the specified file is not found.
-     * @throws IOException If an I/O error occurs while reading the file.
      */
     public static String[][] readExcelData(String fileName, String sheetName) {
         String[][] data = null;
 
-        try {
-            // Read the Excel file using Java
-            FileInputStream fis = new FileInputStream(System.getProperty("user.dir") + "\\TestData\\" + fileName);
-
-            // Load the file into Excel-related classes
-            XSSFWorkbook wb = new XSSFWorkbook(fis);
-
-            // Read the data from the specified sheet
-            XSSFSheet sh = wb.getSheet(sheetName);
-
-            // Get the total rows and columns having data
-            int totalRows = sh.getPhysicalNumberOfRows();
-            int totalColumns = sh.getRow(0).getPhysicalNumberOfCells();
-
-            // Create a 2D array to store the data
-            data = new String[totalRows-1][totalColumns];
-
-            // Loop to iterate over rows
-            for (int r = 1; r < totalRows; r++) {
-                // Loop to iterate over columns
-                for (int c = 0; c < totalColumns; c++) {
-                    data[r-1][c] = sh.getRow(r).getCell(c).getStringCellValue();
-                }
+        try (ExcelReader reader = ExcelReader.open(testDataFile(fileName), sheetName)) {
+            List<String[]> rows = new ArrayList<String[]>();
+            while (reader.hasNext()) {
+                Object[] row = reader.next();
+                rows.add(Arrays.copyOf(row, row.length, String[].class));
             }
-
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+            data = rows.toArray(new String[0][]);
         } catch (IOException e) {
             e.printStackTrace();
         }
 
         return data;
     }
-}
\ No newline at end of file
+
+    /**
+     * Streams the rows of a specified Excel sheet, for use as the return value of a TestNG
+     * {@code @DataProvider}. Rows are parsed only as TestNG asks for them, so the first test
+     * invocation starts before the rest of the sheet is read, and memory use does not grow with
+     * the size of the sheet. The file is closed after the last row.
+     *
+     * @param fileName The name of the Excel file to be read.
+     *                 The file should be located in the `TestData` directory under the user's working directory.
+     * @param sheetName The name of the sheet within the Excel file to read data from.
+     * @return An iterator over the data rows, one {@code Object[]} of strings per row.
+     *         If the file cannot be opened, an empty iterator is returned.
+     */
+    public static Iterator<Object[]> rows(String fileName, String sheetName) {
+        try {
+            return ExcelReader.open(testDataFile(fileName), sheetName);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Collections.emptyIterator();
+        }
+    }
+
+    private static Path testDataFile(String fileName) {
+        return Paths.get(System.getProperty("user.dir"), "TestData", fileName);
+    }
+}
@@ -1,58 +1,346 @@
 package com.creatio.framework.utilities;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 
 /**
  * Utility class for handling PDF files.
  * Provides methods to extract text from PDF files using the Apache PDFBox library.
+ *
+ * <p>Documents are opened from the file rather than read into memory, and PDFBox keeps at most
+ * {@code PDF_MEMORY_MB} (default 64) of decoded streams in memory before spilling to a temp file;
+ * {@code 0} keeps them all in temp files. Large page ranges are split into chunks that are
+ * extracted in parallel on {@code PDF_THREADS} threads (default: one per core), each with its own
+ * copy of the document, because a {@link PDDocument} must not be shared between threads.</p>
+ *
+ * <p>Extracted text is cached per page, keyed by the SHA-256 of the file, up to
+ * {@code PDF_CACHE_CHARS} characters in total (default 16 million); past that the least recently
+ * used files are dropped. Asking again for the same file, or for a copy of it
+ * under another name, only extracts the pages not seen before. A file is hashed again only when
+ * its modification time or size changes.</p>
  */
 public class PDFUtil {
 
+    private static final long MEMORY_BYTES = ConfigService.current().getLong("PDF_MEMORY_MB", 64) * 1024 * 1024;
+    private static final int THREADS = Math.max(1, ConfigService.current().getInt("PDF_THREADS", Runtime.getRuntime().availableProcessors()));
+    private static final long CACHE_CHARS = ConfigService.current().getLong("PDF_CACHE_CHARS", 16000000);
+
+    /** Fewest pages worth handing to a worker of their own. */
+    private static final int MIN_CHUNK = 8;
+
+    private static final ExecutorService workers = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "pdf-text");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Hash of each file, with the modification time and size it was computed for. */
+    private static final Map<Path, long[]> stamps = new ConcurrentHashMap<Path, long[]>();
+    private static final Map<Path, String> hashes = new ConcurrentHashMap<Path, String>();
+
+    /** Text of the pages extracted so far, by file hash, least recently used first; see {@link #trim(String)}. */
+    private static final Map<String, AtomicReferenceArray<String>> pages = Collections.synchronizedMap(
+            new LinkedHashMap<String, AtomicReferenceArray<String>>(16, 0.75f, true));
+
     /**
-     * Extracts text from a specified PDF file.
-     * The method reads the PDF file, processes it using the Apache PDFBox library, and retrieves text from specific pages.
+     * Extracts the text of the second page of a PDF file.
      *
      * @param fileName The name of the PDF file to be read.
      *                 The file should be located in the `Files` directory under the user's working directory.
      * @return A string containing the extracted text from the specified pages of the PDF file.
      *         If the file is not found or an error occurs during reading, an empty string is returned.
-     * @throws FileNotFoundException If the specified file is not found.
-     * @throws IOException If an I/O error occurs while reading the file or processing the PDF.
      */
     public static String getPDFText(String fileName) {
-        String text = "";
+        return getPDFText(fileName, 2, 2);
+    }
 
+    /**
+     * Extracts the text of a range of pages of a PDF file.
+     *
+     * @param fileName  The name of the PDF file to be read.
+     *                  The file should be located in the `Files` directory under the user's working directory.
+     * @param startPage The first page, starting at 1.
+     * @param endPage   The last page, inclusive; pages past the end of the document are ignored.
+     * @return The text of the pages, one after the other.
+     *         If the file is not found or an error occurs during reading, an empty string is returned.
+     */
+    public static String getPDFText(String fileName, int startPage, int endPage) {
         try {
-            // Read the PDF file from the specified directory
-            FileInputStream fis = new FileInputStream(System.getProperty("user.dir") + "\\Files\\" + fileName);
+            return String.join("", getPageTexts(Paths.get(System.getProperty("user.dir"), "Files", fileName), startPage, endPage));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return "";
+        }
+    }
 
-            // Load the PDF file into the PDDocument class for processing
-            PDDocument document = PDDocument.load(fis);
+    /**
+     * Extracts the text of a range of pages, one entry per page.
+     *
+     * @param file      the PDF file
+     * @param startPage the first page, starting at 1
+     * @param endPage   the last page, inclusive; pages past the end of the document are ignored,
+     *                  so {@link Integer#MAX_VALUE} reads to the end
+     * @return the text of each page from {@code startPage}, in page order
+     * @throws IOException if the file cannot be read or is not a PDF
+     * @throws IllegalArgumentException if {@code startPage} is below 1 or after {@code endPage}
+     */
+    public static List<String> getPageTexts(Path file, int startPage, int endPage) throws IOException {
+        if (startPage < 1 || startPage > endPage) {
+            throw new IllegalArgumentException("Invalid page range " + startPage + "-" + endPage);
+        }
+        String hash = hash(file);
+        AtomicReferenceArray<String> text = pages.get(hash);
+        int last;
+        if (text == null) {
+            // The document opened to count the pages also serves the first chunk
+            try (PDDocument document = open(file)) {
+                text = new AtomicReferenceArray<String>(document.getNumberOfPages());
+                AtomicReferenceArray<String> raced = pages.putIfAbsent(hash, text);
+                text = raced == null ? text : raced;
+                last = Math.min(endPage, text.length());
+                extractMissing(file, document, startPage, last, text);
+            }
+        } else {
+            last = Math.min(endPage, text.length());
+            extractMissing(file, null, startPage, last, text);
+        }
+        trim(hash);
 
-            // Create a PDFTextStripper instance to extract text from the PDF
-            PDFTextStripper pdf = new PDFTextStripper();
+        List<String> result = new ArrayList<String>(Math.max(0, last - startPage + 1));
+        for (int page = startPage; page <= last; page++) {
+            result.add(text.get(page - 1));
+        }
+        return result;
+    }
 
-            // Specify the range of pages to extract text from
-            pdf.setStartPage(2);
-            pdf.setEndPage(2);
+    /**
+     * Extracts the text of a range of pages without adding it to the cache, for callers that walk
+     * through a large document once. Pages already in the cache are taken from it.
+     *
+     * @param file      the PDF file
+     * @param startPage the first page, starting at 1
+     * @param endPage   the last page, inclusive; at most the number of pages
+     * @return the text of each page from {@code startPage}, in page order
+     * @throws IOException if the file cannot be read or is not a PDF
+     */
+    static List<String> readPageTexts(Path file, int startPage, int endPage) throws IOException {
+        AtomicReferenceArray<String> cached = pages.get(hash(file));
+        AtomicReferenceArray<String> window = new AtomicReferenceArray<String>(endPage - startPage + 1);
+        List<Integer> missing = new ArrayList<Integer>();
+        for (int page = startPage; page <= endPage; page++) {
+            String text = cached == null ? null : cached.get(page - 1);
+            if (text == null) {
+                missing.add(page);
+            } else {
+                window.set(page - startPage, text);
+            }
+        }
+        forPages(file, missing, (document, chunk) -> {
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int page : chunk) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                window.set(page - startPage, stripper.getText(document));
+            }
+        });
+        List<String> result = new ArrayList<String>(window.length());
+        for (int i = 0; i < window.length(); i++) {
+            result.add(window.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @param file the PDF file
+     * @return the number of pages
+     * @throws IOException if the file cannot be read or is not a PDF
+     */
+    public static int getPageCount(Path file) throws IOException {
+        AtomicReferenceArray<String> text = pages.get(hash(file));
+        if (text != null) {
+            return text.length();
+        }
+        try (PDDocument document = open(file)) {
+            return document.getNumberOfPages();
+        }
+    }
 
-            // Extract text from the specified pages
-            text = pdf.getText(document);
+    /**
+     * Drops the cached text of every file.
+     */
+    public static void clearCache() {
+        pages.clear();
+        stamps.clear();
+        hashes.clear();
+    }
 
-        } catch (FileNotFoundException e) {
-            // Print stack trace if the file is not found
-            e.printStackTrace();
-        } catch (IOException e) {
-            // Print stack trace if an I/O error occurs
-            e.printStackTrace();
+    /**
+     * @return the SHA-256 of the file, computed again only if its modification time or size changed
+     */
+    static String hash(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        long[] stamp = {Files.getLastModifiedTime(key).toMillis(), Files.size(key)};
+        String hash = hashes.get(key);
+        if (hash == null || !Arrays.equals(stamp, stamps.get(key))) {
+            hash = TestDataStore.sha256(key);
+            stamps.put(key, stamp);
+            hashes.put(key, hash);
         }
+        return hash;
+    }
 
-        return text;
+    /**
+     * Opens a document from the file, spilling decoded streams to a temp file past {@code PDF_MEMORY_MB}.
+     */
+    static PDDocument open(Path file) throws IOException {
+        MemoryUsageSetting memory = MEMORY_BYTES > 0 ? MemoryUsageSetting.setupMixed(MEMORY_BYTES) : MemoryUsageSetting.setupTempFileOnly();
+        return PDDocument.load(file.toFile(), memory);
+    }
+
+    /**
+     * Extracts the pages of the range that are not cached yet.
+     *
+     * @param open an open copy of the file to use for the first chunk, or {@code null}
+     */
+    private static void extractMissing(Path file, PDDocument open, int startPage, int endPage, AtomicReferenceArray<String> text) throws IOException {
+        List<Integer> missing = new ArrayList<Integer>();
+        for (int page = startPage; page <= endPage; page++) {
+            if (text.get(page - 1) == null) {
+                missing.add(page);
+            }
+        }
+        forPages(file, open, missing, (document, chunk) -> extract(document, chunk.get(0), chunk.get(chunk.size() - 1), text));
+    }
+
+    /**
+     * Drops the least recently used files until the cached text is within {@code PDF_CACHE_CHARS}.
+     *
+     * @param keep hash of the file just read, which stays even if it alone is over the limit
+     */
+    private static void trim(String keep) {
+        synchronized (pages) {
+            long total = 0;
+            for (AtomicReferenceArray<String> text : pages.values()) {
+                total += chars(text);
+            }
+            Iterator<Map.Entry<String, AtomicReferenceArray<String>>> eldest = pages.entrySet().iterator();
+            while (total > CACHE_CHARS && eldest.hasNext()) {
+                Map.Entry<String, AtomicReferenceArray<String>> entry = eldest.next();
+                if (!entry.getKey().equals(keep)) {
+                    total -= chars(entry.getValue());
+                    eldest.remove();
+                }
+            }
+        }
+    }
+
+    private static long chars(AtomicReferenceArray<String> text) {
+        long chars = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String page = text.get(i);
+            chars += page == null ? 0 : page.length();
+        }
+        return chars;
+    }
+
+    /**
+     * Works through pages of a document in chunks of consecutive pages, in parallel when there
+     * are enough of them. Each chunk gets its own copy of the document.
+     *
+     * @param file  the PDF file
+     * @param pages the pages to work on, starting at 1, in ascending order
+     * @param task  called once per chunk
+     * @throws IOException if the file cannot be read or a task fails
+     */
+    static void forPages(Path file, List<Integer> pages, PageTask task) throws IOException {
+        forPages(file, null, pages, task);
+    }
+
+    /**
+     * As {@link #forPages(Path, List, PageTask)}, running the first chunk on the calling thread
+     * with a document the caller already has open.
+     *
+     * @param open an open copy of the file for the first chunk, or {@code null} to open one
+     */
+    private static void forPages(Path file, PDDocument open, List<Integer> pages, PageTask task) throws IOException {
+        if (pages.isEmpty()) {
+            return;
+        }
+        int size = Math.max(MIN_CHUNK, (pages.size() + THREADS - 1) / THREADS);
+        List<List<Integer>> chunks = new ArrayList<List<Integer>>();
+        int from = 0;
+        for (int i = 1; i <= pages.size(); i++) {
+            if (i == pages.size() || i - from == size || pages.get(i) != pages.get(i - 1) + 1) {
+                chunks.add(pages.subList(from, i));
+                from = i;
+            }
+        }
+        if (chunks.size() == 1 && open == null) {
+            try (PDDocument document = open(file)) {
+                task.run(document, chunks.get(0));
+            }
+            return;
+        }
+        List<Future<?>> tasks = new ArrayList<Future<?>>();
+        for (List<Integer> chunk : open == null ? chunks : chunks.subList(1, chunks.size())) {
+            tasks.add(workers.submit(() -> {
+                try (PDDocument document = open(file)) {
+                    task.run(document, chunk);
+                }
+                return null;
+            }));
+        }
+        try {
+            if (open != null) {
+                task.run(open, chunks.get(0));
+            }
+            for (Future<?> pending : tasks) {
+                pending.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + file, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Cannot read " + file + ": " + cause, cause);
+        }
     }
-}
 
+    private static void extract(PDDocument document, int startPage, int endPage, AtomicReferenceArray<String> text) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        for (int page = startPage; page <= endPage; page++) {
+            if (text.get(page - 1) == null) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                text.set(page - 1, stripper.getText(document));
+            }
+        }
+    }
+
+    /** Work on a chunk of consecutive pages of an open document. */
+    interface PageTask {
+        void run(PDDocument document, List<Integer> pages) throws IOException;
+    }
+}
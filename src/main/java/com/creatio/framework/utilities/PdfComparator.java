@@ -0,0 +1,341 @@
+package com.creatio.framework.utilities;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+/**
+ * Compares a PDF file with a baseline, page by page.
+ *
+ * <p>Each page is reduced to a fingerprint: the SHA-256 of its text after normalisation
+ * (whitespace runs collapsed, blank lines dropped, {@link #ignore(String) ignored patterns}
+ * masked). Pages with equal fingerprints are skipped; only the pages that differ get a line diff.
+ * Both files are walked in windows of {@code PDF_COMPARE_WINDOW} pages (default 64): the text of
+ * a window is extracted in parallel, compared and dropped before the next window is read, so
+ * memory depends on the window size rather than the page count. Compared text is not added to
+ * the {@link PDFUtil} cache; pages already cached there are reused.</p>
+ *
+ * <p>With {@link #compareImages(boolean) image comparison} on ({@code PDF_COMPARE_IMAGES}, default
+ * false) pages whose text matches are also rendered at {@code PDF_COMPARE_DPI} (default 36) and
+ * reduced to a 64-bit difference hash; pages whose hashes differ in more than
+ * {@code PDF_COMPARE_TOLERANCE} bits (default 4) are reported as layout changes. Only one page
+ * image per worker is held at a time.</p>
+ *
+ * <pre>
+ * PdfComparator.Result result = new PdfComparator()
+ *         .ignore("\\d{2}\\.\\d{2}\\.\\d{4}")
+ *         .compare(baseline, downloaded);
+ * Assert.assertTrue(result.isMatch(), result.toString());
+ * </pre>
+ */
+public class PdfComparator {
+
+    private static final boolean IMAGES = ConfigService.current().getBoolean("PDF_COMPARE_IMAGES", false);
+    private static final float DPI = ConfigService.current().getFloat("PDF_COMPARE_DPI", 36f);
+    private static final int TOLERANCE = ConfigService.current().getInt("PDF_COMPARE_TOLERANCE", 4);
+    private static final int WINDOW = Math.max(1, ConfigService.current().getInt("PDF_COMPARE_WINDOW", 64));
+
+    /** Most diff lines reported for one page. */
+    private static final int MAX_DIFF_LINES = 40;
+
+    private static final Pattern SPACES = Pattern.compile("[ \\t\\u00A0]+");
+
+    private final List<Pattern> ignored = new ArrayList<Pattern>();
+    private boolean images = IMAGES;
+
+    /**
+     * Masks text matching a pattern on both sides, e.g. dates or generated numbers.
+     *
+     * @param regex a regular expression, matched within a line
+     * @return this comparator
+     */
+    public PdfComparator ignore(String regex) {
+        ignored.add(Pattern.compile(regex));
+        return this;
+    }
+
+    /**
+     * @param enabled {@code true} to also compare pages with equal text by their rendered image
+     * @return this comparator
+     */
+    public PdfComparator compareImages(boolean enabled) {
+        this.images = enabled;
+        return this;
+    }
+
+    /**
+     * Compares two PDF files.
+     *
+     * @param expected the baseline
+     * @param actual   the file to check
+     * @return the pages that differ
+     * @throws IOException if either file cannot be read or is not a PDF
+     */
+    public Result compare(Path expected, Path actual) throws IOException {
+        int expectedCount = PDFUtil.getPageCount(expected);
+        int actualCount = PDFUtil.getPageCount(actual);
+        int common = Math.min(expectedCount, actualCount);
+
+        List<Difference> differences = new ArrayList<Difference>();
+        List<Integer> sameText = new ArrayList<Integer>();
+        for (int from = 1; from <= common; from += WINDOW) {
+            int to = Math.min(common, from + WINDOW - 1);
+            List<String> expectedPages = PDFUtil.readPageTexts(expected, from, to);
+            List<String> actualPages = PDFUtil.readPageTexts(actual, from, to);
+            for (int page = from; page <= to; page++) {
+                List<String> before = normalize(expectedPages.get(page - from));
+                List<String> after = normalize(actualPages.get(page - from));
+                if (fingerprint(before).equals(fingerprint(after))) {
+                    sameText.add(page);
+                } else {
+                    differences.add(new Difference(page, Kind.TEXT, diff(before, after)));
+                }
+            }
+        }
+        if (images && !sameText.isEmpty()) {
+            long[] before = imageHashes(expected, sameText);
+            long[] after = imageHashes(actual, sameText);
+            for (int i = 0; i < sameText.size(); i++) {
+                int distance = Long.bitCount(before[i] ^ after[i]);
+                if (distance > TOLERANCE) {
+                    differences.add(new Difference(sameText.get(i), Kind.IMAGE,
+                            "same text, rendered page differs in " + distance + " of 64 hash bits"));
+                }
+            }
+            differences.sort((a, b) -> Integer.compare(a.page, b.page));
+        }
+        for (int page = common + 1; page <= expectedCount; page++) {
+            differences.add(new Difference(page, Kind.MISSING, "page is missing from " + actual.getFileName()));
+        }
+        for (int page = common + 1; page <= actualCount; page++) {
+            differences.add(new Difference(page, Kind.EXTRA, "page is not in " + expected.getFileName()));
+        }
+        return new Result(expected, actual, expectedCount, actualCount, differences);
+    }
+
+    /** @return the non-blank lines of the page, with whitespace runs collapsed and ignored text masked */
+    private List<String> normalize(String text) {
+        List<String> lines = new ArrayList<String>();
+        for (String line : text.split("\\R")) {
+            String normalized = SPACES.matcher(line).replaceAll(" ").trim();
+            for (Pattern pattern : ignored) {
+                normalized = pattern.matcher(normalized).replaceAll("*");
+            }
+            if (!normalized.isEmpty()) {
+                lines.add(normalized);
+            }
+        }
+        return lines;
+    }
+
+    private static String fingerprint(List<String> lines) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String line : lines) {
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Lists the lines only in {@code before} ({@code -}) and only in {@code after} ({@code +}),
+     * in page order, from their longest common subsequence.
+     */
+    private static String diff(List<String> before, List<String> after) {
+        int n = before.size();
+        int m = after.size();
+        int[][] common = new int[n + 1][m + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            for (int j = m - 1; j >= 0; j--) {
+                common[i][j] = before.get(i).equals(after.get(j)) ? common[i + 1][j + 1] + 1 : Math.max(common[i + 1][j], common[i][j + 1]);
+            }
+        }
+        StringBuilder diff = new StringBuilder();
+        int lines = 0;
+        int i = 0;
+        int j = 0;
+        while ((i < n || j < m) && lines < MAX_DIFF_LINES) {
+            if (i < n && j < m && before.get(i).equals(after.get(j))) {
+                i++;
+                j++;
+                continue;
+            }
+            if (j == m || (i < n && common[i + 1][j] >= common[i][j + 1])) {
+                diff.append("- ").append(before.get(i++)).append('\n');
+            } else {
+                diff.append("+ ").append(after.get(j++)).append('\n');
+            }
+            lines++;
+        }
+        if (i < n || j < m) {
+            diff.append("...\n");
+        }
+        return diff.toString();
+    }
+
+    /**
+     * @return the difference hash of each page, in the order of {@code pages}
+     */
+    private static long[] imageHashes(Path file, List<Integer> pages) throws IOException {
+        AtomicLongArray hashes = new AtomicLongArray(pages.size());
+        List<Integer> positions = new ArrayList<Integer>(pages);
+        PDFUtil.forPages(file, pages, (document, chunk) -> {
+            PDFRenderer renderer = new PDFRenderer(document);
+            for (int page : chunk) {
+                BufferedImage image = renderer.renderImageWithDPI(page - 1, DPI, ImageType.GRAY);
+                hashes.set(Collections.binarySearch(positions, page), dHash(image));
+            }
+        });
+        long[] result = new long[pages.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = hashes.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Averages the image down to 9 x 8 cells and sets one bit per cell that is brighter than its
+     * right neighbour, so rendering noise does not change the hash but moved or added content does.
+     */
+    private static long dHash(BufferedImage image) {
+        Raster raster = image.getRaster();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        long[][] cells = new long[8][9];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            raster.getSamples(0, y, width, 1, 0, row);
+            long[] cellRow = cells[y * 8 / height];
+            for (int x = 0; x < width; x++) {
+                cellRow[x * 9 / width] += row[x];
+            }
+        }
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                // Cells of one row may differ in width by a pixel; compare averages
+                long left = cells[y][x] * 1000 / cellWidth(x, width);
+                long right = cells[y][x + 1] * 1000 / cellWidth(x + 1, width);
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    /** @return the number of pixel columns falling into cell {@code x} of 9 */
+    private static int cellWidth(int x, int width) {
+        return (int) Math.max(1, ((long) (x + 1) * width + 8) / 9 - ((long) x * width + 8) / 9);
+    }
+
+    /** How a page differs. */
+    public enum Kind {
+        /** The normalised text differs. */
+        TEXT,
+        /** The text is the same but the rendered page differs. */
+        IMAGE,
+        /** The baseline has the page, the actual file does not. */
+        MISSING,
+        /** The actual file has a page the baseline does not. */
+        EXTRA
+    }
+
+    /** One page that differs. */
+    public static final class Difference {
+        private final int page;
+        private final Kind kind;
+        private final String detail;
+
+        private Difference(int page, Kind kind, String detail) {
+            this.page = page;
+            this.kind = kind;
+            this.detail = detail;
+        }
+
+        /** @return the page, starting at 1 */
+        public int getPage() {
+            return page;
+        }
+
+        /** @return how the page differs */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /** @return the line diff for {@link Kind#TEXT}, a description otherwise */
+        public String getDetail() {
+            return detail;
+        }
+    }
+
+    /** The outcome of a comparison. */
+    public static final class Result {
+        private final Path expected;
+        private final Path actual;
+        private final int expectedPages;
+        private final int actualPages;
+        private final List<Difference> differences;
+
+        private Result(Path expected, Path actual, int expectedPages, int actualPages, List<Difference> differences) {
+            this.expected = expected;
+            this.actual = actual;
+            this.expectedPages = expectedPages;
+            this.actualPages = actualPages;
+            this.differences = Collections.unmodifiableList(differences);
+        }
+
+        /** @return {@code true} if no page differs */
+        public boolean isMatch() {
+            return differences.isEmpty();
+        }
+
+        /** @return the number of pages of the baseline */
+        public int getExpectedPages() {
+            return expectedPages;
+        }
+
+        /** @return the number of pages of the actual file */
+        public int getActualPages() {
+            return actualPages;
+        }
+
+        /** @return the pages that differ, in page order */
+        public List<Difference> getDifferences() {
+            return differences;
+        }
+
+        /** @return a summary followed by the detail of each differing page */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(actual.getFileName()).append(" vs ").append(expected.getFileName()).append(": ");
+            if (isMatch()) {
+                return text.append(expectedPages).append(" pages match").toString();
+            }
+            text.append(differences.size()).append(" of ").append(Math.max(expectedPages, actualPages)).append(" pages differ\n");
+            for (Difference difference : differences) {
+                text.append("Page ").append(difference.page).append(" (").append(difference.kind).append("):\n").append(difference.detail);
+                if (!difference.detail.endsWith("\n")) {
+                    text.append('\n');
+                }
+            }
+            return text.toString();
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package com.creatio.framework.utilities;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Properties;
 
 /**
  * Utility class for handling property files.
  * Provides methods to read data from `.properties` files and load them into a {@link Properties} object.
+ *
+ * <p>Every call reads the file again. For the framework configuration use {@link ConfigService},
+ * which reads {@code Config.properties} once and keeps it up to date.</p>
  */
 public class PropUtil {
 
@@ -18,27 +24,38 @@ public class PropUtil {
      *                 The file should be located in the `Config` directory under the user's working directory.
      * @return A {@link Properties} object containing the key-value pairs from the specified file.
      *         If the file is not found or an error occurs during reading, an empty {@link Properties} object is returned.
-     * @throws FileNotFoundException If the specified file is not found.
-     * @throws IOException If an I/O error occurs while reading the file.
      */
     public static Properties readData(String fileName) {
         Properties prop = new Properties();
-
         try {
-            // Construct the file path using the user's working directory and the `Config` folder
-            FileInputStream fis = new FileInputStream(System.getProperty("user.dir") + "\\Config\\" + fileName);
-
-            // Load all the properties available within the file into the `prop` variable
-            prop.load(fis);
-
-        } catch (FileNotFoundException e) {
-            // Print stack trace if the file is not found
-            e.printStackTrace();
+            prop = readFile(configDir().resolve(fileName));
         } catch (IOException e) {
-            // Print stack trace if an I/O error occurs
+            // Print stack trace if the file is missing or cannot be read
             e.printStackTrace();
         }
+        return prop;
+    }
 
+    /**
+     * @return the {@code Config} directory under the user's working directory
+     */
+    static Path configDir() {
+        return Paths.get(System.getProperty("user.dir"), "Config");
+    }
+
+    /**
+     * Reads a `.properties` file.
+     *
+     * @param file the file
+     * @return its key-value pairs
+     * @throws NoSuchFileException if the file does not exist
+     * @throws IOException         if the file cannot be read
+     */
+    static Properties readFile(Path file) throws IOException {
+        Properties prop = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            prop.load(in);
+        }
         return prop;
     }
 }
@@ -0,0 +1,250 @@
+package com.creatio.framework.utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of the workbooks in the {@code TestData} directory.
+ *
+ * <p>A workbook is parsed once, all sheets in one pass, and shared by every test and thread. Each
+ * lookup compares the file's modification time and size with the cached copy and reloads it when
+ * they differ, so edits made during a run are picked up.</p>
+ *
+ * <p>With {@code TEST_DATA_SNAPSHOTS=true} (default) the parsed workbook is also written to a
+ * compact binary snapshot in {@code TestData/.cache}. Later runs load the snapshot instead of
+ * parsing the workbook, as long as the file is unchanged: same modification time and size, or,
+ * when only the timestamp moved (e.g. after a fresh checkout), the same SHA-256.</p>
+ *
+ * <pre>
+ * &#64;DataProvider(name = "data")
+ * public Iterator&lt;Object[]&gt; testData(Method method) {
+ *     return TestDataStore.sheet("TestData.xlsx", method.getName()).iterator();
+ * }
+ * </pre>
+ */
+public class TestDataStore {
+
+    private static final boolean SNAPSHOTS = ConfigService.current().getBoolean("TEST_DATA_SNAPSHOTS", true);
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final Map<Path, Workbook> workbooks = new ConcurrentHashMap<Path, Workbook>();
+
+    /**
+     * Returns a sheet of a workbook in the {@code TestData} directory.
+     *
+     * @param fileName  the workbook file name, e.g. {@code TestData.xlsx}
+     * @param sheetName the sheet name
+     * @return the sheet
+     * @throws IllegalArgumentException if the workbook cannot be read or has no such sheet
+     */
+    public static DataSheet sheet(String fileName, String sheetName) {
+        DataSheet sheet = workbook(Paths.get(System.getProperty("user.dir"), "TestData", fileName)).sheets.get(sheetName);
+        if (sheet == null) {
+            throw new IllegalArgumentException("No sheet named '" + sheetName + "' in " + fileName);
+        }
+        return sheet;
+    }
+
+    /**
+     * Drops every cached workbook; the next lookup reads them again.
+     */
+    public static void clear() {
+        workbooks.clear();
+    }
+
+    private static Workbook workbook(Path file) {
+        long[] stamp = stamp(file);
+        Workbook cached = workbooks.get(file);
+        if (cached != null && cached.matches(stamp)) {
+            return cached;
+        }
+        // One thread loads a given file while the others wait for it
+        return workbooks.compute(file, (f, current) -> current != null && current.matches(stamp) ? current : load(f, stamp));
+    }
+
+    private static Workbook load(Path file, long[] stamp) {
+        Path snapshot = file.resolveSibling(".cache").resolve(file.getFileName() + ".bin");
+        if (SNAPSHOTS && Files.isRegularFile(snapshot)) {
+            try {
+                Workbook stored = readSnapshot(snapshot);
+                if (stored.matches(stamp)) {
+                    return stored;
+                }
+                String hash = sha256(file);
+                if (stored.hash.equals(hash)) {
+                    Workbook touched = new Workbook(stamp[0], stamp[1], hash, stored.sheets);
+                    writeSnapshot(snapshot, touched);
+                    return touched;
+                }
+            } catch (IOException e) {
+                // Unreadable or outdated snapshot format: parse the workbook instead
+            }
+        }
+        try {
+            Map<String, DataSheet> sheets = new LinkedHashMap<String, DataSheet>();
+            ExcelReader.readAll(file, (name, reader) -> {
+                List<String[]> rows = new ArrayList<String[]>();
+                while (reader.hasNext()) {
+                    Object[] row = reader.next();
+                    rows.add(Arrays.copyOf(row, row.length, String[].class));
+                }
+                sheets.put(name, new DataSheet(name, reader.getHeader(), rows));
+            });
+            Workbook workbook = new Workbook(stamp[0], stamp[1], SNAPSHOTS ? sha256(file) : "", sheets);
+            if (SNAPSHOTS) {
+                writeSnapshot(snapshot, workbook);
+            }
+            return workbook;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read test data " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** @return the modification time and size of the file, or zeros if it is missing */
+    private static long[] stamp(Path file) {
+        try {
+            return new long[] {Files.getLastModifiedTime(file).toMillis(), Files.size(file)};
+        } catch (IOException e) {
+            return new long[2];
+        }
+    }
+
+    static String sha256(Path file) throws IOException {
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), MessageDigest.getInstance("SHA-256"))) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) >= 0) {
+                // Reading feeds the digest
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : ((DigestInputStream) in).getMessageDigest().digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeSnapshot(Path snapshot, Workbook workbook) {
+        Path temp = null;
+        try {
+            Files.createDirectories(snapshot.getParent());
+            // A unique name per writer, so JVMs saving the same snapshot do not write one file
+            temp = Files.createTempFile(snapshot.getParent(), snapshot.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(workbook.modified);
+                out.writeLong(workbook.size);
+                writeString(out, workbook.hash);
+                out.writeInt(workbook.sheets.size());
+                for (DataSheet sheet : workbook.sheets.values()) {
+                    writeString(out, sheet.getName());
+                    out.writeInt(sheet.getHeader().size());
+                    for (String column : sheet.getHeader()) {
+                        writeString(out, column);
+                    }
+                    out.writeInt(sheet.size());
+                    for (String[] row : sheet.rows()) {
+                        for (String value : row) {
+                            writeString(out, value);
+                        }
+                    }
+                }
+            }
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void deleteQuietly(Path temp) {
+        if (temp != null) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static Workbook readSnapshot(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported snapshot version");
+            }
+            long modified = in.readLong();
+            long size = in.readLong();
+            String hash = readString(in);
+            Map<String, DataSheet> sheets = new LinkedHashMap<String, DataSheet>();
+            for (int s = in.readInt(); s > 0; s--) {
+                String name = readString(in);
+                List<String> header = new ArrayList<String>();
+                for (int c = in.readInt(); c > 0; c--) {
+                    header.add(readString(in));
+                }
+                int count = in.readInt();
+                List<String[]> rows = new ArrayList<String[]>(count);
+                for (int r = 0; r < count; r++) {
+                    String[] row = new String[header.size()];
+                    for (int c = 0; c < row.length; c++) {
+                        row[c] = readString(in);
+                    }
+                    rows.add(row);
+                }
+                sheets.put(name, new DataSheet(name, header, rows));
+            }
+            return new Workbook(modified, size, hash, sheets);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** The sheets of one workbook together with the file state they were read from. */
+    private static final class Workbook {
+        private final long modified;
+        private final long size;
+        private final String hash;
+        private final Map<String, DataSheet> sheets;
+
+        private Workbook(long modified, long size, String hash, Map<String, DataSheet> sheets) {
+            this.modified = modified;
+            this.size = size;
+            this.hash = hash;
+            this.sheets = sheets;
+        }
+
+        private boolean matches(long[] stamp) {
+            return modified == stamp[0] && size == stamp[1];
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.creatio.framework.webcommons;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Queues scroll, read, assert and act steps and runs them in a single {@code executeScript} call.
+ *
+ * <p>Obtained from {@link WebCommons#batch()}. Targets can be {@link By} locators, which are
+ * resolved inside the browser, or {@link WebElement}s, which are sent as script arguments.
+ * Steps run in order; the first failing assertion or missing element stops the batch and
+ * {@link #run()} throws an {@link AssertionError} naming the step.</p>
+ *
+ * <pre>
+ * Map&lt;String, Object&gt; values = batch()
+ *         .scrollTo(By.id("email"))
+ *         .setValue(By.id("email"), "admin@creatio.com")
+ *         .check(By.id("terms"), true)
+ *         .assertText(By.cssSelector("h1"), "Sign up")
+ *         .readText("banner", By.cssSelector(".banner"))
+ *         .click(By.id("submit"))
+ *         .run();
+ * </pre>
+ *
+ * <p>Acting steps use DOM APIs: {@code click} calls {@code element.click()} and {@code setValue}
+ * assigns the value and dispatches {@code input} and {@code change} events. They skip WebDriver's
+ * actionability checks, so keep {@link WebCommons#click(WebElement)} and
+ * {@link WebCommons#enterText(WebElement, String)} for interactions that must behave like a real user.</p>
+ */
+public class ActionBatch {
+
+    private static final String SCRIPT =
+            JsLocator.FUNCTIONS
+            + "var steps = arguments[0], targets = arguments[1], values = {};"
+            + "function resolve(t) {"
+            + "  var target = targets[t];"
+            + "  var el = (target && target.using) ? __find(target) : target;"
+            + "  if (!el) { throw 'element not found: ' + (target && target.using ? target.using + ' ' + target.value : '#' + t); }"
+            + "  return el;"
+            + "}"
+            + "for (var i = 0; i < steps.length; i++) {"
+            + "  var s = steps[i];"
+            + "  try {"
+            + "    var el = resolve(s.target);"
+            + "    switch (s.op) {"
+            + "      case 'scroll': el.scrollIntoView(true); break;"
+            + "      case 'click': el.scrollIntoView(true); el.click(); break;"
+            + "      case 'setValue':"
+            + "        el.scrollIntoView(true); el.focus();"
+            + "        var proto = el instanceof HTMLTextAreaElement ? HTMLTextAreaElement.prototype : HTMLInputElement.prototype;"
+            + "        var setter = Object.getOwnPropertyDescriptor(proto, 'value');"
+            + "        if (setter && setter.set && (el instanceof HTMLInputElement || el instanceof HTMLTextAreaElement)) { setter.set.call(el, s.value); } else { el.value = s.value; }"
+            + "        el.dispatchEvent(new Event('input', { bubbles: true }));"
+            + "        el.dispatchEvent(new Event('change', { bubbles: true }));"
+            + "        break;"
+            + "      case 'check':"
+            + "        el.scrollIntoView(true);"
+            + "        if (el.checked !== s.value) { el.click(); }"
+            + "        break;"
+            + "      case 'readText': values[s.name] = (el.innerText || el.textContent || '').trim(); break;"
+            + "      case 'readAttribute': values[s.name] = el.getAttribute(s.value); break;"
+            + "      case 'readVisible': values[s.name] = __visible(el); break;"
+            + "      case 'assertText':"
+            + "        var text = (el.innerText || el.textContent || '').trim();"
+            + "        if (text !== s.value) { return { failed: i, message: 'expected [' + s.value + '] but found [' + text + ']' }; }"
+            + "        break;"
+            + "      case 'assertVisible':"
+            + "        if (__visible(el) !== s.value) { return { failed: i, message: 'expected visible=' + s.value }; }"
+            + "        break;"
+            + "    }"
+            + "  } catch (e) { return { failed: i, message: String(e) }; }"
+            + "}"
+            + "return { values: values };";
+
+    private final WebDriver driver;
+    private final List<Map<String, Object>> steps = new ArrayList<Map<String, Object>>();
+    private final List<Object> targets = new ArrayList<Object>();
+    private final List<String> descriptions = new ArrayList<String>();
+
+    ActionBatch(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    /** Scrolls the target into view. */
+    public ActionBatch scrollTo(Object target) {
+        return add("scroll", target, null, null);
+    }
+
+    /** Scrolls the target into view and clicks it through the DOM. */
+    public ActionBatch click(Object target) {
+        return add("click", target, null, null);
+    }
+
+    /** Sets the value of an input or text area and fires {@code input}/{@code change} events. */
+    public ActionBatch setValue(Object target, String value) {
+        return add("setValue", target, null, value);
+    }
+
+    /** Clicks a checkbox or radio button only if its checked state differs from {@code status}. */
+    public ActionBatch check(Object target, boolean status) {
+        return add("check", target, null, status);
+    }
+
+    /** Reads the trimmed visible text of the target into the result under {@code name}. */
+    public ActionBatch readText(String name, Object target) {
+        return add("readText", target, name, null);
+    }
+
+    /** Reads an attribute of the target into the result under {@code name}. */
+    public ActionBatch readAttribute(String name, Object target, String attribute) {
+        return add("readAttribute", target, name, attribute);
+    }
+
+    /** Reads whether the target is visible into the result under {@code name}. */
+    public ActionBatch readVisible(String name, Object target) {
+        return add("readVisible", target, name, null);
+    }
+
+    /** Stops the batch with a failure unless the trimmed text of the target equals {@code expected}. */
+    public ActionBatch assertText(Object target, String expected) {
+        return add("assertText", target, null, expected);
+    }
+
+    /** Stops the batch with a failure unless the target's visibility equals {@code expected}. */
+    public ActionBatch assertVisible(Object target, boolean expected) {
+        return add("assertVisible", target, null, expected);
+    }
+
+    /**
+     * Runs all queued steps in one browser round trip.
+     *
+     * @return the values captured by the read steps, by name, in step order
+     * @throws AssertionError if an assertion fails or a target cannot be found
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> run() {
+        if (steps.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> result = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(SCRIPT, steps, targets);
+        if (result.containsKey("failed")) {
+            int step = ((Number) result.get("failed")).intValue();
+            throw new AssertionError("Batch step " + (step + 1) + " (" + descriptions.get(step) + ") failed: " + result.get("message"));
+        }
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+        Map<String, Object> read = (Map<String, Object>) result.get("values");
+        for (Map<String, Object> step : steps) {
+            if (step.containsKey("name")) {
+                values.put((String) step.get("name"), read.get(step.get("name")));
+            }
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    private ActionBatch add(String op, Object target, String name, Object value) {
+        Map<String, Object> step = new HashMap<String, Object>();
+        step.put("op", op);
+        step.put("target", targetIndex(target));
+        if (name != null) {
+            step.put("name", name);
+        }
+        if (value != null) {
+            step.put("value", value);
+        }
+        steps.add(step);
+        descriptions.add(op + " " + target);
+        return this;
+    }
+
+    private int targetIndex(Object target) {
+        Object arg;
+        if (target instanceof By) {
+            arg = JsLocator.of((By) target);
+        } else if (target instanceof WebElement) {
+            arg = target;
+        } else {
+            throw new IllegalArgumentException("Batch target must be a By locator or a WebElement: " + target);
+        }
+        for (int i = 0; i < targets.size(); i++) {
+            // Elements are compared by identity: equals() on a page-object proxy is a remote call
+            Object existing = targets.get(i);
+            if (existing == arg || (arg instanceof Map && arg.equals(existing))) {
+                return i;
+            }
+        }
+        targets.add(arg);
+        return targets.size() - 1;
+    }
+}
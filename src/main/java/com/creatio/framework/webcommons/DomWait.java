@@ -0,0 +1,188 @@
+package com.creatio.framework.webcommons;
+
+import java.time.Duration;
+
+import com.creatio.framework.pagefactory.CachingElementLocator;
+import com.creatio.framework.pagefactory.CachingPageFactory;
+import com.creatio.framework.pagefactory.LazyElement;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * Wait engine that evaluates conditions inside the browser.
+ *
+ * <p>Each wait is a single asynchronous script: the condition is checked once, then re-checked on
+ * every DOM mutation (and on a short in-page timer for pure layout changes) until it holds or the
+ * timeout expires. The client blocks on that one call instead of polling over the wire, so a wait
+ * returns within milliseconds of the page changing. If an element argument is detached from the
+ * DOM while waiting, the script returns early and the wait is re-issued, which lets page-object
+ * proxies resolve the re-rendered element.</p>
+ *
+ * <p>The driver's script timeout must exceed the wait timeout; {@code DriverFactory} sets it to
+ * {@link com.creatio.framework.constants.Constants#SCRIPT_TIME} for every session.</p>
+ */
+public class DomWait {
+
+    /** Backoff between attempts while a page-object element is not in the DOM yet. */
+    private static final long ABSENT_BACKOFF_MS = 200;
+
+    /** Interval of the in-page re-check, and backoff after a script that failed in the browser. */
+    private static final long POLL_INTERVAL_MS = 250;
+
+    private static final String SCRIPT =
+            JsLocator.FUNCTIONS
+            + "var done = arguments[arguments.length - 1];"
+            + "var timeout = arguments[arguments.length - 2];"
+            + "var args = Array.prototype.slice.call(arguments, 0, arguments.length - 2);"
+            + "var finished = false, interval = null, timer = null;"
+            + "var observer = new MutationObserver(function() { attempt(); });"
+            + "function finish(result) {"
+            + "  finished = true; observer.disconnect();"
+            + "  if (interval) { clearInterval(interval); } if (timer) { clearTimeout(timer); }"
+            + "  done(result);"
+            + "}"
+            + "function attempt() {"
+            + "  if (finished) { return; }"
+            + "  var ok = false;"
+            + "  try { ok = !!check.apply(null, args); } catch (e) { ok = false; }"
+            + "  if (ok) { finish(true); return; }"
+            + "  for (var i = 0; i < args.length; i++) {"
+            + "    if (args[i] instanceof Element && !args[i].isConnected) { finish('stale'); return; }"
+            + "  }"
+            + "}"
+            + "attempt();"
+            + "if (!finished) {"
+            + "  observer.observe(document.documentElement || document, { childList: true, subtree: true, attributes: true, characterData: true });"
+            + "  interval = setInterval(attempt, " + POLL_INTERVAL_MS + ");"
+            + "  timer = setTimeout(function() { if (!finished) { finish(false); } }, timeout);"
+            + "}";
+
+    /**
+     * Waits until the given element is visible.
+     *
+     * @param driver  the WebDriver session
+     * @param element the element to wait for; page-object proxies are resolved as they appear in the DOM
+     * @param timeout maximum time to wait
+     * @throws TimeoutException if the element is not visible in time
+     */
+    public static void untilVisible(WebDriver driver, WebElement element, Duration timeout) {
+        By locator = CachingPageFactory.locatorOf(element);
+        if (locator != null) {
+            // Caching proxies are resolved in the browser, so a re-render never hands back a stale element
+            untilVisible(driver, locator, timeout);
+            return;
+        }
+        until(driver, "return __visible(arguments[0]);", "visibility of " + element, timeout, element);
+    }
+
+    /**
+     * Waits until the element matching the locator is visible.
+     *
+     * @param driver  the WebDriver session
+     * @param locator the locator of the element
+     * @param timeout maximum time to wait
+     * @throws TimeoutException if no matching element is visible in time
+     */
+    public static void untilVisible(WebDriver driver, By locator, Duration timeout) {
+        String description = "visibility of element located by " + locator;
+        if (!(locator instanceof By.Remotable)) {
+            until(driver, "return __visible(arguments[0]);", description, timeout, located(driver, locator));
+            return;
+        }
+        until(driver, "return __visible(__find(arguments[0]));", description, timeout, JsLocator.of(locator));
+    }
+
+    /**
+     * Waits until at least one element matches the locator.
+     *
+     * @param driver  the WebDriver session
+     * @param locator the locator of the element(s)
+     * @param timeout maximum time to wait
+     * @throws TimeoutException if nothing matches in time
+     */
+    public static void untilPresent(WebDriver driver, By locator, Duration timeout) {
+        String description = "presence of element located by " + locator;
+        if (!(locator instanceof By.Remotable)) {
+            until(driver, "return arguments[0] !== null;", description, timeout, located(driver, locator));
+            return;
+        }
+        until(driver, "return __find(arguments[0]) !== null;", description, timeout, JsLocator.of(locator));
+    }
+
+    /**
+     * Wraps a locator the browser cannot evaluate ({@code ByChained}, {@code ByAll},
+     * {@code ByIdOrName}) into an element resolved by the driver on every attempt, so the wait
+     * backs off while it is absent like it does for page-object elements.
+     */
+    private static WebElement located(WebDriver driver, By locator) {
+        return new LazyElement(new CachingElementLocator(driver, locator));
+    }
+
+    /**
+     * Waits until a JavaScript predicate holds.
+     *
+     * <p>The predicate is the body of a function that receives {@code args} as {@code arguments}
+     * and may use the helpers {@code __find(locator)}, {@code __findAll(locator)} and
+     * {@code __visible(element)}. Exceptions thrown by the predicate count as "not yet"; a predicate
+     * that does not parse fails the wait at once.</p>
+     *
+     * @param driver      the WebDriver session
+     * @param predicate   JavaScript function body returning a truthy value when the condition holds
+     * @param description description used in the timeout message
+     * @param timeout     maximum time to wait
+     * @param args        script arguments passed to the predicate
+     * @throws TimeoutException if the predicate does not hold in time
+     * @throws JavascriptException if the predicate is not valid JavaScript
+     */
+    public static void until(WebDriver driver, String predicate, String description, Duration timeout, Object... args) {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        String script = "var check = function() {" + predicate + "};" + SCRIPT;
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new TimeoutException("Expected condition failed: waiting for " + description
+                        + " (tried for " + timeout.getSeconds() + " second(s))");
+            }
+            Object[] scriptArgs = new Object[args.length + 1];
+            System.arraycopy(args, 0, scriptArgs, 0, args.length);
+            scriptArgs[args.length] = remaining;
+            try {
+                if (Boolean.TRUE.equals(((JavascriptExecutor) driver).executeAsyncScript(script, scriptArgs))) {
+                    return;
+                }
+            } catch (NoSuchElementException | StaleElementReferenceException e) {
+                // A page-object element is not in the DOM (yet); back off until it can be resolved
+                for (Object arg : args) {
+                    if (arg instanceof WebElement) {
+                        CachingPageFactory.evict((WebElement) arg);
+                    }
+                }
+                sleep(Math.min(ABSENT_BACKOFF_MS, remaining));
+            } catch (ScriptTimeoutException e) {
+                // The driver gave up before the in-page timer; treat it as an expired wait
+            } catch (JavascriptException e) {
+                if (String.valueOf(e.getMessage()).contains("SyntaxError")) {
+                    throw e;
+                }
+                // The page navigated away while waiting; re-attach once the new document had time to load
+                sleep(Math.min(POLL_INTERVAL_MS, remaining));
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted while waiting", e);
+        }
+    }
+}
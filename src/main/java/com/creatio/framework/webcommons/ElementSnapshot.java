@@ -0,0 +1,87 @@
+package com.creatio.framework.webcommons;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable state of one element captured by {@link WebCommons#snapshot(String...)}.
+ * All values are read in the same browser call, so they are consistent with each other.
+ */
+public final class ElementSnapshot {
+
+    private final String name;
+    private final boolean present;
+    private final String tagName;
+    private final String text;
+    private final boolean displayed;
+    private final boolean enabled;
+    private final boolean selected;
+    private final Map<String, String> attributes;
+
+    ElementSnapshot(String name, boolean present, String tagName, String text, boolean displayed,
+                    boolean enabled, boolean selected, Map<String, String> attributes) {
+        this.name = name;
+        this.present = present;
+        this.tagName = tagName;
+        this.text = text;
+        this.displayed = displayed;
+        this.enabled = enabled;
+        this.selected = selected;
+        this.attributes = Collections.unmodifiableMap(new LinkedHashMap<String, String>(attributes));
+    }
+
+    /** @return the field name or key the element was requested under */
+    public String getName() {
+        return name;
+    }
+
+    /** @return {@code true} if the locator matched an element */
+    public boolean isPresent() {
+        return present;
+    }
+
+    /** @return the lower-case tag name, or {@code null} if the element is absent */
+    public String getTagName() {
+        return tagName;
+    }
+
+    /** @return the trimmed rendered text, or {@code null} if the element is absent */
+    public String getText() {
+        return text;
+    }
+
+    /** @return {@code true} if the element is present and visible */
+    public boolean isDisplayed() {
+        return displayed;
+    }
+
+    /** @return {@code true} if the element is present and not disabled */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** @return {@code true} if the element is a checked input or a selected option */
+    public boolean isSelected() {
+        return selected;
+    }
+
+    /**
+     * @param attribute the attribute name
+     * @return the attribute value as written in the DOM, or {@code null} if it is not set
+     */
+    public String getAttribute(String attribute) {
+        return attributes.get(attribute);
+    }
+
+    /** @return all attributes of the element, by name */
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{present=" + present + ", displayed=" + displayed + ", enabled=" + enabled
+                + ", selected=" + selected + ", text='" + text + "'}";
+    }
+}
@@ -0,0 +1,66 @@
+package com.creatio.framework.webcommons;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+
+/**
+ * Translates Selenium {@link By} locators into a form that can be resolved inside the browser,
+ * so that scripts run by {@link WebCommons} can locate elements without extra WebDriver round trips.
+ */
+final class JsLocator {
+
+    /**
+     * JavaScript helpers shared by the in-browser scripts:
+     * {@code __find(locator)}, {@code __findAll(locator)} and {@code __visible(element)}.
+     */
+    static final String FUNCTIONS =
+            "function __findAll(l) {"
+            + "  if (!l) { return []; }"
+            + "  var out = [];"
+            + "  if (l.using === 'xpath') {"
+            + "    var r = document.evaluate(l.value, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+            + "    for (var i = 0; i < r.snapshotLength; i++) { out.push(r.snapshotItem(i)); }"
+            + "    return out;"
+            + "  }"
+            + "  if (l.using === 'link text' || l.using === 'partial link text') {"
+            + "    var links = document.querySelectorAll('a');"
+            + "    for (var j = 0; j < links.length; j++) {"
+            + "      var t = (links[j].innerText || '').trim();"
+            + "      if (l.using === 'link text' ? t === l.value : t.indexOf(l.value) >= 0) { out.push(links[j]); }"
+            + "    }"
+            + "    return out;"
+            + "  }"
+            + "  return Array.prototype.slice.call(document.querySelectorAll(l.value));"
+            + "}"
+            + "function __find(l) { var all = __findAll(l); return all.length ? all[0] : null; }"
+            + "function __visible(e) {"
+            + "  if (!e || !e.isConnected) { return false; }"
+            + "  var s = window.getComputedStyle(e);"
+            + "  if (s.display === 'none' || s.visibility === 'hidden' || s.visibility === 'collapse' || parseFloat(s.opacity) === 0) { return false; }"
+            + "  var rects = e.getClientRects();"
+            + "  return rects.length > 0 && (rects[0].width > 0 || rects[0].height > 0);"
+            + "}";
+
+    private JsLocator() {
+    }
+
+    /**
+     * Converts a locator into a {@code {using, value}} map understood by {@link #FUNCTIONS}.
+     *
+     * @param by the locator to convert; must be one of Selenium's built-in locators
+     * @return the script argument describing the locator
+     * @throws IllegalArgumentException if the locator cannot be evaluated in the browser
+     */
+    static Map<String, Object> of(By by) {
+        if (!(by instanceof By.Remotable)) {
+            throw new IllegalArgumentException("Locator cannot be resolved in the browser: " + by);
+        }
+        By.Remotable.Parameters params = ((By.Remotable) by).getRemoteParameters();
+        Map<String, Object> locator = new HashMap<String, Object>();
+        locator.put("using", params.using());
+        locator.put("value", String.valueOf(params.value()));
+        return locator;
+    }
+}
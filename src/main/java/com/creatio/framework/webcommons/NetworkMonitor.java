@@ -0,0 +1,201 @@
+package com.creatio.framework.webcommons;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.bidi.BiDi;
+import org.openqa.selenium.bidi.Event;
+import org.openqa.selenium.bidi.HasBiDi;
+import org.openqa.selenium.bidi.network.BaseParameters;
+import org.openqa.selenium.bidi.network.BeforeRequestSent;
+import org.openqa.selenium.bidi.network.FetchError;
+import org.openqa.selenium.bidi.network.ResponseDetails;
+
+/**
+ * Tracks in-flight requests of a browser session through WebDriver BiDi network events.
+ *
+ * <p>One monitor is attached per browser session as soon as the session is started, so requests
+ * the first page makes before anyone waits on it are counted too. It stays subscribed until
+ * {@link #detach(WebDriver)} is called as the session quits, so pooled sessions keep their monitor
+ * between tests. Requests are counted per browsing context (window
+ * handle), which keeps tests that share a browser process from seeing each other's traffic; the
+ * counts of a context are dropped with {@link #forget(WebDriver, Collection)} when it is closed.
+ * Waiting happens on the client without any WebDriver commands: the event thread wakes the
+ * waiting test when the request count changes.</p>
+ */
+public class NetworkMonitor {
+
+    private static final Event<BeforeRequestSent> BEFORE_REQUEST_SENT = new Event<BeforeRequestSent>("network.beforeRequestSent", BeforeRequestSent::fromJsonMap);
+    private static final Event<ResponseDetails> RESPONSE_COMPLETED = new Event<ResponseDetails>("network.responseCompleted", ResponseDetails::fromJsonMap);
+    private static final Event<FetchError> FETCH_ERROR = new Event<FetchError>("network.fetchError", FetchError::fromJsonMap);
+
+    /** Monitor of each browser session, keyed by the undecorated driver. */
+    private static final Map<WebDriver, NetworkMonitor> monitors = new HashMap<WebDriver, NetworkMonitor>();
+
+    private final BiDi bidi;
+    private final long[] listeners;
+
+    /** Request ids currently in flight, by browsing context id; guarded by {@code this}. */
+    private final Map<String, Set<String>> inFlight = new HashMap<String, Set<String>>();
+
+    /** Time of the last request start or end, by browsing context id; guarded by {@code this}. */
+    private final Map<String, Long> lastActivity = new HashMap<String, Long>();
+
+    /** When the listeners were subscribed; contexts without activity count as busy until then. */
+    private final long attachedAt = System.currentTimeMillis();
+
+    private NetworkMonitor(BiDi bidi) {
+        this.bidi = bidi;
+        // Listeners are registered one by one so that detaching leaves other subscribers, such as
+        // the request blocking of a launch profile, in place
+        this.listeners = new long[] {
+            bidi.addListener(BEFORE_REQUEST_SENT, this::started),
+            bidi.addListener(RESPONSE_COMPLETED, this::finished),
+            bidi.addListener(FETCH_ERROR, this::finished)
+        };
+    }
+
+    /**
+     * @param driver the WebDriver session
+     * @return {@code true} if the session has a BiDi connection
+     */
+    public static boolean isSupported(WebDriver driver) {
+        return driver instanceof HasBiDi && ((HasBiDi) driver).maybeGetBiDi().isPresent();
+    }
+
+    /**
+     * Returns the monitor of the given session, attaching one if needed.
+     *
+     * @param driver the WebDriver session
+     * @return the session's monitor, or {@code null} if the session has no BiDi connection
+     */
+    public static NetworkMonitor of(WebDriver driver) {
+        if (!isSupported(driver)) {
+            return null;
+        }
+        synchronized (monitors) {
+            return monitors.computeIfAbsent(unwrap(driver), key -> new NetworkMonitor(((HasBiDi) driver).getBiDi()));
+        }
+    }
+
+    /**
+     * Removes the monitor of a session, if it has one, and unsubscribes its listeners.
+     * Called before the session quits.
+     *
+     * @param driver the WebDriver session
+     */
+    public static void detach(WebDriver driver) {
+        NetworkMonitor monitor;
+        synchronized (monitors) {
+            monitor = monitors.remove(unwrap(driver));
+        }
+        if (monitor != null) {
+            for (long listener : monitor.listeners) {
+                try {
+                    monitor.bidi.removeListener(listener);
+                } catch (WebDriverException e) {
+                    // The connection is already closed together with its listeners
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the request counts of browsing contexts that were closed, e.g. the tabs of a test
+     * sharing a browser process.
+     *
+     * @param driver   the WebDriver session hosting the contexts
+     * @param contexts the browsing context ids (window handles)
+     */
+    public static void forget(WebDriver driver, Collection<String> contexts) {
+        NetworkMonitor monitor;
+        synchronized (monitors) {
+            monitor = monitors.get(unwrap(driver));
+        }
+        if (monitor != null) {
+            synchronized (monitor) {
+                monitor.inFlight.keySet().removeAll(contexts);
+                monitor.lastActivity.keySet().removeAll(contexts);
+            }
+        }
+    }
+
+    /** @return the driver behind any decorators, so decorated views of one session share a monitor */
+    private static WebDriver unwrap(WebDriver driver) {
+        while (driver instanceof WrapsDriver) {
+            driver = ((WrapsDriver) driver).getWrappedDriver();
+        }
+        return driver;
+    }
+
+    /**
+     * Restarts the quiet period of a browsing context, e.g. right before it navigates or after it
+     * was opened, so an idle wait does not return before the first request of the page arrives.
+     *
+     * @param context the browsing context id (window handle)
+     */
+    public synchronized void touch(String context) {
+        lastActivity.put(context, System.currentTimeMillis());
+    }
+
+    /**
+     * Blocks until the browsing context has had no request in flight for the given quiet period.
+     *
+     * @param context     the browsing context id (window handle) to watch
+     * @param quietPeriod how long the network must stay idle
+     * @param timeout     maximum time to wait
+     * @throws TimeoutException if the network does not become idle in time
+     */
+    public synchronized void waitForIdle(String context, Duration quietPeriod, Duration timeout) {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        while (true) {
+            long now = System.currentTimeMillis();
+            Set<String> pending = inFlight.get(context);
+            long idleSince = lastActivity.getOrDefault(context, attachedAt);
+            long quietLeft = quietPeriod.toMillis() - (now - idleSince);
+            if ((pending == null || pending.isEmpty()) && quietLeft <= 0) {
+                return;
+            }
+            if (now >= deadline) {
+                throw new TimeoutException("Network did not become idle for " + quietPeriod.toMillis()
+                        + " ms within " + timeout.getSeconds() + " second(s); "
+                        + (pending == null ? 0 : pending.size()) + " request(s) still in flight");
+            }
+            long sleep = deadline - now;
+            if (pending == null || pending.isEmpty()) {
+                sleep = Math.min(sleep, quietLeft);
+            }
+            try {
+                wait(Math.max(1, sleep));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimeoutException("Interrupted while waiting for network idle", e);
+            }
+        }
+    }
+
+    private synchronized void started(BaseParameters event) {
+        String context = event.getBrowsingContextId();
+        inFlight.computeIfAbsent(context, k -> new HashSet<String>()).add(event.getRequest().getRequestId());
+        lastActivity.put(context, System.currentTimeMillis());
+        notifyAll();
+    }
+
+    private synchronized void finished(BaseParameters event) {
+        String context = event.getBrowsingContextId();
+        Set<String> pending = inFlight.get(context);
+        if (pending != null) {
+            pending.remove(event.getRequest().getRequestId());
+        }
+        lastActivity.put(context, System.currentTimeMillis());
+        notifyAll();
+    }
+}
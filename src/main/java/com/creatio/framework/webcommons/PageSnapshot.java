@@ -0,0 +1,42 @@
+package com.creatio.framework.webcommons;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of {@link ElementSnapshot}s taken in a single browser call by
+ * {@link WebCommons#snapshot(String...)} or {@link WebCommons#snapshot(Map)}.
+ */
+public final class PageSnapshot {
+
+    private final Map<String, ElementSnapshot> elements;
+
+    PageSnapshot(Map<String, ElementSnapshot> elements) {
+        this.elements = Collections.unmodifiableMap(new LinkedHashMap<String, ElementSnapshot>(elements));
+    }
+
+    /**
+     * @param name the field name or key the element was requested under
+     * @return the element's snapshot
+     * @throws IllegalArgumentException if the element was not part of the snapshot
+     */
+    public ElementSnapshot get(String name) {
+        ElementSnapshot snapshot = elements.get(name);
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Element was not captured in this snapshot: " + name);
+        }
+        return snapshot;
+    }
+
+    /** @return all captured elements, in request order */
+    public Collection<ElementSnapshot> getAll() {
+        return elements.values();
+    }
+
+    @Override
+    public String toString() {
+        return elements.values().toString();
+    }
+}
@@ -1,20 +1,36 @@
 package com.creatio.framework.webcommons;
 
-import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.creatio.framework.base.BasePage;
 import com.creatio.framework.constants.Constants;
+import com.creatio.framework.pagefactory.CachingElementLocator;
+import com.creatio.framework.reports.CommandTimings;
 import com.creatio.framework.reports.Reports;
-import com.creatio.framework.utilities.PropUtil;
-import org.apache.commons.io.FileUtils;
+import com.creatio.framework.reports.ScreenshotWriter;
+import com.creatio.framework.reports.TestContext;
+import com.creatio.framework.utilities.ConfigService;
+import com.creatio.framework.utilities.ConfigSnapshot;
 import org.openqa.selenium.*;
+import org.openqa.selenium.bidi.browsingcontext.BrowsingContext;
+import org.openqa.selenium.bidi.browsingcontext.ReadinessState;
 import org.openqa.selenium.interactions.Actions;
+import org.openqa.selenium.support.FindAll;
+import org.openqa.selenium.support.FindBy;
+import org.openqa.selenium.support.FindBys;
+import org.openqa.selenium.support.pagefactory.Annotations;
 import org.openqa.selenium.support.ui.*;
 
 
@@ -32,14 +48,82 @@ import org.openqa.selenium.support.ui.*;
  */
 public class WebCommons {
 
+    /** Locators of the {@code @FindBy} fields of each page-object class, built once per class. */
+    private static final Map<Class<?>, Map<String, By>> pageLocators = new ConcurrentHashMap<Class<?>, Map<String, By>>();
+
+    private static final String SNAPSHOT_SCRIPT =
+            JsLocator.FUNCTIONS
+            + "var locators = arguments[0], out = [];"
+            + "for (var i = 0; i < locators.length; i++) {"
+            + "  var e = null;"
+            + "  try { e = __find(locators[i]); } catch (err) { e = null; }"
+            + "  if (!e) { out.push({ present: false }); continue; }"
+            + "  var attrs = {};"
+            + "  for (var j = 0; j < e.attributes.length; j++) { attrs[e.attributes[j].name] = e.attributes[j].value; }"
+            + "  out.push({"
+            + "    present: true,"
+            + "    tag: e.tagName.toLowerCase(),"
+            + "    text: (e.innerText || e.textContent || '').trim(),"
+            + "    displayed: __visible(e),"
+            + "    enabled: !(e.matches && e.matches(':disabled')),"
+            + "    selected: !!(e.checked || e.selected),"
+            + "    attributes: attrs"
+            + "  });"
+            + "}"
+            + "return out;";
+
     public WebDriver driver = BasePage.getDriver();
-    public Properties prop = PropUtil.readData("Config.properties");
 
     /**
-     * Launches the application using URL from Config.properties.
+     * @deprecated a copy of the configuration when this object was created; use {@link ConfigService#current()}
+     */
+    @Deprecated
+    public Properties prop = ConfigService.current().asProperties();
+
+    /**
+     * Launches the application using URL and PAGE_LOAD_STRATEGY from Config.properties.
      */
     public void launchApplication() {
-        driver.get(prop.getProperty("APP_URL"));
+        ConfigSnapshot config = ConfigService.current();
+        navigateTo(config.get("APP_URL"), config.get("PAGE_LOAD_STRATEGY", "normal"));
+    }
+
+    /**
+     * Navigates to a URL and returns once the page reaches the readiness of the given strategy.
+     * With a BiDi session the strategy applies to this navigation only; otherwise the session's
+     * own page-load strategy is used.
+     *
+     * @param url      the URL to open
+     * @param strategy "normal" (load event), "eager" (DOMContentLoaded) or "none" (return immediately)
+     */
+    public void navigateTo(String url, String strategy) {
+        ReadinessState readiness;
+        switch (strategy.toLowerCase()) {
+            case "normal":
+                readiness = ReadinessState.COMPLETE;
+                break;
+            case "eager":
+                readiness = ReadinessState.INTERACTIVE;
+                break;
+            case "none":
+                readiness = ReadinessState.NONE;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid page load strategy: " + strategy);
+        }
+        if (NetworkMonitor.isSupported(driver)) {
+            String handle = driver.getWindowHandle();
+            // Subscribed before the page starts loading, so a following idle wait sees its requests
+            NetworkMonitor.of(driver).touch(handle);
+            CommandTimings.time("BrowsingContext.navigate", () -> url, () -> new BrowsingContext(driver, handle).navigate(url, readiness));
+        } else {
+            if (readiness != ReadinessState.COMPLETE) {
+                log("warn", "Page load strategy '" + strategy + "' needs a BiDi session (ENABLE_BIDI=true); "
+                        + "loading " + url + " with the session's own strategy");
+            }
+            driver.get(url);
+        }
+        CachingElementLocator.invalidate(driver);
     }
 
     /**
@@ -117,17 +201,28 @@ public class WebCommons {
 
     /**
      * Selects or deselects a checkbox based on the desired status.
+     * Scrolling and reading the current state share one script call.
      *
      * @param checkbox the checkbox WebElement
      * @param status true to select, false to deselect
      */
     public void selectCheckbox(WebElement checkbox, boolean status) {
-        scrollToElement(checkbox);
-        if (checkbox.isSelected() != status) {
+        JavascriptExecutor js = (JavascriptExecutor) driver;
+        Object selected = js.executeScript("arguments[0].scrollIntoView(true); return arguments[0].checked === true;", checkbox);
+        if (!Boolean.valueOf(status).equals(selected)) {
             checkbox.click();
         }
     }
 
+    /**
+     * Starts a batch of scroll/read/assert/act steps that run in a single browser round trip.
+     *
+     * @return a new, empty {@link ActionBatch} bound to this page's driver
+     */
+    public ActionBatch batch() {
+        return new ActionBatch(driver);
+    }
+
     /**
      * Selects an option from a dropdown using the specified method.
      *
@@ -157,7 +252,11 @@ public class WebCommons {
      * Introduces a hard wait for the specified number of seconds.
      *
      * @param seconds number of seconds to wait
+     * @deprecated blocks for the full duration even when the page is ready; use
+     *             {@link #waitForElement(WebElement)}, {@link #waitForElement(By)} or
+     *             {@link #waitForCondition(String, Object...)} instead
      */
+    @Deprecated
     public void wait(int seconds) {
         try {
             Thread.sleep(seconds * 1000L);
@@ -177,30 +276,66 @@ public class WebCommons {
 
     /**
      * Waits until the specified element is visible on the page.
+     * The check runs inside the browser and returns as soon as the DOM change happens.
      *
-     * param element WebElement to wait for
-     * param seconds timeout duration in seconds
+     * @param element WebElement to wait for
      */
     public void waitForElement(WebElement element) {
-        new WebDriverWait(driver, Duration.ofSeconds(Constants.WAIT_TIME))
-                .until(ExpectedConditions.visibilityOf(element));
+        DomWait.untilVisible(driver, element, Duration.ofSeconds(Constants.WAIT_TIME));
     }
 
     /**
      * Waits until the specified locator finds at least one matching element.
+     * The check runs inside the browser and returns as soon as the DOM change happens.
      *
-     * param locator By locator to find element(s)
-     * param seconds timeout duration in seconds
+     * @param locator By locator to find element(s)
      */
     public void waitForElement(By locator) {
-        new WebDriverWait(driver, Duration.ofSeconds(Constants.WAIT_TIME))
-                .until(ExpectedConditions.numberOfElementsToBeMoreThan(locator, 0));
+        DomWait.untilPresent(driver, locator, Duration.ofSeconds(Constants.WAIT_TIME));
     }
 
     /**
-     * Waits until an alert is present on the page.
+     * Waits until a JavaScript condition holds in the page.
      *
-     * param seconds timeout duration in seconds
+     * @param predicate body of a JavaScript function returning a truthy value when the condition holds,
+     *                  e.g. {@code "return document.querySelectorAll('.row').length >= arguments[0];"}
+     * @param args      arguments available to the predicate as {@code arguments}
+     */
+    public void waitForCondition(String predicate, Object... args) {
+        DomWait.until(driver, predicate, "condition: " + predicate, Duration.ofSeconds(Constants.WAIT_TIME), args);
+    }
+
+    /**
+     * Waits until the current window has had no request in flight for NETWORK_IDLE_MS
+     * (Config.properties). Requests are tracked through BiDi network events; sessions without
+     * BiDi fall back to watching the page's resource timing entries.
+     */
+    public void waitForNetworkIdle() {
+        Duration quietPeriod = Duration.ofMillis(ConfigService.current().getLong("NETWORK_IDLE_MS", 500));
+        Duration timeout = Duration.ofSeconds(Constants.WAIT_TIME);
+        NetworkMonitor monitor = NetworkMonitor.of(driver);
+        if (monitor != null) {
+            String handle = driver.getWindowHandle();
+            CommandTimings.time("NetworkMonitor.waitForIdle", () -> handle, () -> monitor.waitForIdle(handle, quietPeriod, timeout));
+        } else {
+            DomWait.until(driver,
+                    "var count = performance.getEntriesByType('resource').length, now = Date.now();"
+                    + "if (window.__resourceCount !== count) { window.__resourceCount = count; window.__resourceChange = now; }"
+                    + "return document.readyState === 'complete' && now - window.__resourceChange >= arguments[0];",
+                    "network idle", timeout, quietPeriod.toMillis());
+        }
+    }
+
+    /**
+     * Waits until the application reports itself ready, using the APP_READY_SCRIPT predicate
+     * from Config.properties (a JavaScript function body returning true when the app is usable).
+     */
+    public void waitForApplicationReady() {
+        waitForCondition(ConfigService.current().get("APP_READY_SCRIPT", "return document.readyState !== 'loading';"));
+    }
+
+    /**
+     * Waits until an alert is present on the page.
      */
     public void waitForAlert() {
         new WebDriverWait(driver, Duration.ofSeconds(Constants.WAIT_TIME))
@@ -220,6 +355,7 @@ public class WebCommons {
 
     /**
      * Captures a screenshot of the entire browser window.
+     * The file is written in the background by {@link ScreenshotWriter}.
      *
      * @param driver WebDriver instance
      * @param fileName name of the screenshot file (without extension)
@@ -227,14 +363,13 @@ public class WebCommons {
      * @throws IOException if an error occurs while saving the file
      */
     public static String windowScreenshot(WebDriver driver, String fileName) throws IOException {
-        String screenshotPath = System.getProperty("user.dir") + "\\Screenshots\\" + fileName + ".png";
-        File screenshotFile = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
-        FileUtils.copyFile(screenshotFile, new File(screenshotPath));
-        return screenshotPath;
+        byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+        return ScreenshotWriter.submit(screenshot, fileName);
     }
 
     /**
      * Captures a screenshot of a specific web element.
+     * The file is written in the background by {@link ScreenshotWriter}.
      *
      * @param element the WebElement to capture
      * @param fileName name of the screenshot file (without extension)
@@ -242,10 +377,8 @@ public class WebCommons {
      * @throws IOException if an error occurs while saving the file
      */
     public static String elementScreenshot(WebElement element, String fileName) throws IOException {
-        String screenshotPath = System.getProperty("user.dir") + "\\Screenshots\\" + fileName + ".png";
-        File screenshotFile = element.getScreenshotAs(OutputType.FILE);
-        FileUtils.copyFile(screenshotFile, new File(screenshotPath));
-        return screenshotPath;
+        byte[] screenshot = element.getScreenshotAs(OutputType.BYTES);
+        return ScreenshotWriter.submit(screenshot, fileName);
     }
 
     /**
@@ -255,6 +388,7 @@ public class WebCommons {
      */
     public void switchToFrame(WebElement frameElement) {
         driver.switchTo().frame(frameElement);
+        CachingElementLocator.invalidate(driver);
     }
 
     /**
@@ -264,6 +398,7 @@ public class WebCommons {
      */
     public void switchToFrame(String frameNameOrId) {
         driver.switchTo().frame(frameNameOrId);
+        CachingElementLocator.invalidate(driver);
     }
 
     /**
@@ -307,6 +442,76 @@ public class WebCommons {
         return element.getAttribute(attribute);
     }
 
+    /**
+     * Captures text, attributes, visibility, enabled and selected state of several
+     * {@code @FindBy} fields of this page object in a single browser call.
+     *
+     * @param fieldNames names of {@code @FindBy} fields declared by this page object or its superclasses
+     * @return an immutable snapshot keyed by field name
+     * @throws IllegalArgumentException if a name is not an annotated field of this page object
+     */
+    public PageSnapshot snapshot(String... fieldNames) {
+        Map<String, By> fieldLocators = pageLocators.computeIfAbsent(getClass(), WebCommons::findByLocators);
+        Map<String, By> locators = new LinkedHashMap<String, By>();
+        for (String fieldName : fieldNames) {
+            By by = fieldLocators.get(fieldName);
+            if (by == null) {
+                throw new IllegalArgumentException("No @FindBy field named '" + fieldName + "' in " + getClass().getName());
+            }
+            locators.put(fieldName, by);
+        }
+        return snapshot(locators);
+    }
+
+    /**
+     * Captures text, attributes, visibility, enabled and selected state of several elements
+     * in a single browser call.
+     *
+     * @param locators the locators to capture, keyed by the name used to look them up in the result
+     * @return an immutable snapshot keyed by the given names
+     */
+    @SuppressWarnings("unchecked")
+    public PageSnapshot snapshot(Map<String, By> locators) {
+        List<Map<String, Object>> args = new ArrayList<Map<String, Object>>();
+        for (By by : locators.values()) {
+            args.add(JsLocator.of(by));
+        }
+        List<Map<String, Object>> states = (List<Map<String, Object>>) ((JavascriptExecutor) driver).executeScript(SNAPSHOT_SCRIPT, args);
+        Map<String, ElementSnapshot> elements = new LinkedHashMap<String, ElementSnapshot>();
+        int i = 0;
+        for (String name : locators.keySet()) {
+            Map<String, Object> state = states.get(i++);
+            if (Boolean.TRUE.equals(state.get("present"))) {
+                Map<String, String> attributes = new LinkedHashMap<String, String>();
+                for (Map.Entry<String, Object> attribute : ((Map<String, Object>) state.get("attributes")).entrySet()) {
+                    attributes.put(attribute.getKey(), String.valueOf(attribute.getValue()));
+                }
+                elements.put(name, new ElementSnapshot(name, true, (String) state.get("tag"), (String) state.get("text"),
+                        Boolean.TRUE.equals(state.get("displayed")), Boolean.TRUE.equals(state.get("enabled")),
+                        Boolean.TRUE.equals(state.get("selected")), attributes));
+            } else {
+                elements.put(name, new ElementSnapshot(name, false, null, null, false, false, false, new HashMap<String, String>()));
+            }
+        }
+        return new PageSnapshot(elements);
+    }
+
+    /**
+     * Builds the locators of all {@code @FindBy}, {@code @FindBys} and {@code @FindAll} fields of a page-object class.
+     */
+    private static Map<String, By> findByLocators(Class<?> pageClass) {
+        Map<String, By> locators = new HashMap<String, By>();
+        for (Class<?> c = pageClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!locators.containsKey(field.getName()) && (field.isAnnotationPresent(FindBy.class)
+                        || field.isAnnotationPresent(FindBys.class) || field.isAnnotationPresent(FindAll.class))) {
+                    locators.put(field.getName(), new Annotations(field).buildBy());
+                }
+            }
+        }
+        return locators;
+    }
+
     /**
      * Gets the title of the current browser window.
      *
@@ -355,6 +560,7 @@ public class WebCommons {
                 break;
             }
         }
+        CachingElementLocator.invalidate(driver);
     }
 
     /**
@@ -369,6 +575,7 @@ public class WebCommons {
                 break;
             }
         }
+        CachingElementLocator.invalidate(driver);
     }
 
     /**
@@ -378,6 +585,7 @@ public class WebCommons {
      */
     public void switchToWindow(String windowHandle) {
         driver.switchTo().window(windowHandle);
+        CachingElementLocator.invalidate(driver);
     }
 
     /**
@@ -392,6 +600,7 @@ public class WebCommons {
             }
         }
         driver.switchTo().window(mainWindow);
+        CachingElementLocator.invalidate(driver);
     }
 
     /**
@@ -434,6 +643,7 @@ public class WebCommons {
      */
     public void navigateBack() {
         driver.navigate().back();
+        CachingElementLocator.invalidate(driver);
     }
 
     /**
@@ -441,6 +651,7 @@ public class WebCommons {
      */
     public void navigateForward() {
         driver.navigate().forward();
+        CachingElementLocator.invalidate(driver);
     }
 
     /**
@@ -448,6 +659,7 @@ public class WebCommons {
      */
     public void refreshPage() {
         driver.navigate().refresh();
+        CachingElementLocator.invalidate(driver);
     }
 
     /**
@@ -492,18 +704,31 @@ public class WebCommons {
 
     /**
      * Method to print logs in the report.
+     *
+     * <p>Outside a test, e.g. in suite setup, lines go to the report's {@code Suite log} entry; when
+     * no report is being written they are printed to stderr with a {@code [no test]} marker.</p>
+     *
+     * @param status  {@code info}, {@code pass}, {@code fail} or {@code warn}; anything else is
+     *                logged as a warning naming the status
+     * @param message the message
      */
     public void log(String status, String message) {
-        if(status.equalsIgnoreCase("info")) {
-            Reports.logger.info("INFO: " + message);
+        TestContext context = TestContext.current();
+        if (context == null) {
+            context = Reports.suiteContext();
+        }
+        if (context == null) {
+            System.err.println("[no test] " + status.toUpperCase() + ": " + message);
+        } else if(status.equalsIgnoreCase("info")) {
+            context.info("INFO: " + message);
         } else if(status.equalsIgnoreCase("pass")) {
-            Reports.logger.pass("PASS: " + message);
+            context.pass("PASS: " + message);
         } else if(status.equalsIgnoreCase("fail")) {
-            Reports.logger.fail("FAIL: " + message);
+            context.fail("FAIL: " + message);
         } else if(status.equalsIgnoreCase("warn")) {
-            Reports.logger.warning("WARNING: " + message);
+            context.warning("WARNING: " + message);
         } else {
-            System.out.println("UNKNOWN STATUS: " + message);
+            context.warning("UNKNOWN STATUS '" + status + "': " + message);
         }
     }
 
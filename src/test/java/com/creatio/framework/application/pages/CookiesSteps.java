@@ -1,16 +1,18 @@
 package com.creatio.framework.application.pages;
 
 import com.creatio.framework.application.elements.HomePage;
+import com.creatio.framework.application.elements.HomePageBinder;
+import com.creatio.framework.webcommons.ElementSnapshot;
+import com.creatio.framework.webcommons.PageSnapshot;
 import org.apache.http.util.Asserts;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.support.PageFactory;
 import org.testng.Assert;
 import org.testng.asserts.Assertion;
 
 public class CookiesSteps extends HomePage {
 
     public CookiesSteps(WebDriver driver) {
-        PageFactory.initElements(driver,this);
+        HomePageBinder.bind(this, driver);
     }
     /**
      * Verify the cookies banner.
@@ -50,4 +52,29 @@ public class CookiesSteps extends HomePage {
             log("fail","Prefrence button status is disabled" );
         }
 
+    /**
+     * Verify all four cookie categories with a single snapshot of the dialog.
+     */
+    public void verifyCookieCategories() {
+        waitForElement(NeccessaryCookiesTextElement);
+        PageSnapshot dialog = snapshot(
+                "NeccessaryCookiesTextElement", "NeccessaryCookiesButtonElement",
+                "PrefrenceCookiesTextElement", "PrefrenceCookiesButtonElement",
+                "StaticsCookiesTextElement", "StaticsCookiesButtonElement",
+                "MarketCookiesTextElement", "MarketingCookiesButtonElement");
+        String[][] categories = {
+                {"Necessary", "NeccessaryCookiesTextElement", "NeccessaryCookiesButtonElement"},
+                {"Preferences", "PrefrenceCookiesTextElement", "PrefrenceCookiesButtonElement"},
+                {"Statistics", "StaticsCookiesTextElement", "StaticsCookiesButtonElement"},
+                {"Marketing", "MarketCookiesTextElement", "MarketingCookiesButtonElement"}};
+        for (String[] category : categories) {
+            ElementSnapshot text = dialog.get(category[1]);
+            ElementSnapshot button = dialog.get(category[2]);
+            Assert.assertTrue(text.isDisplayed(), category[0] + " cookies text is not displayed");
+            Assert.assertEquals(text.getText(), category[0]);
+            Assert.assertTrue(button.isPresent(), category[0] + " cookies option button is missing");
+            log("pass", category[0] + " cookies option is displayed, enabled: " + button.isEnabled() + ", selected: " + button.isSelected());
+        }
+    }
+
 }
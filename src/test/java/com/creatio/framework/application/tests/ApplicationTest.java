@@ -8,14 +8,19 @@ public class ApplicationTest extends BaseTest{
 
     @Test(priority = 1)
     public void verifyCookieBannerTest() {
-        cookiesteps.launchApplication();
-        cookiesteps.verifyCookiesBanner();
+        getCookiesteps().launchApplication();
+        getCookiesteps().verifyCookiesBanner();
     }
     @Test
     public void verifyCookieBodyTextTest() {
-        cookiesteps.launchApplication();
-        cookiesteps.verifycookiebodyText();
+        getCookiesteps().launchApplication();
+        getCookiesteps().verifycookiebodyText();
 
     }
+    @Test
+    public void verifyCookieCategoriesTest() {
+        getCookiesteps().launchApplication();
+        getCookiesteps().verifyCookieCategories();
+    }
 
 }
@@ -3,33 +3,44 @@ package com.creatio.framework.application.tests;
 
 import com.creatio.framework.application.pages.CookiesSteps;
 import com.creatio.framework.base.BasePage;
-import com.creatio.framework.utilities.ExcelUtils;
-import com.creatio.framework.utilities.PropUtil;
+import com.creatio.framework.utilities.ConfigService;
+import com.creatio.framework.utilities.TestDataStore;
 import org.openqa.selenium.WebDriver;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 
 import java.lang.reflect.Method;
+import java.util.Iterator;
 import java.util.Properties;
 
 
 public class BaseTest extends BasePage {
 	
-	public Properties prop = PropUtil.readData("Config.properties");
+	/**
+	 * @deprecated a copy of the configuration when this test was created; use {@link ConfigService#current()}
+	 */
+	@Deprecated
+	public Properties prop = ConfigService.current().asProperties();
 
-	public CookiesSteps cookiesteps;
+	private final ThreadLocal<CookiesSteps> cookiesteps = new ThreadLocal<CookiesSteps>();
 
 
 	@BeforeMethod(alwaysRun = true,dependsOnMethods = "setupBrowser")
 	public void initializePages() {
 		WebDriver driver = BasePage.getDriver();
-		cookiesteps = new CookiesSteps(driver);
-	}	
+		cookiesteps.set(new CookiesSteps(driver));
+	}
+
+	/**
+	 * Returns the page steps bound to the browser of the current test thread.
+	 */
+	public CookiesSteps getCookiesteps() {
+		return cookiesteps.get();
+	}
 		
-	@DataProvider(name = "data")
-	public String[][] testData(Method method) {
-		String[][] data = ExcelUtils.readExcelData("TestData.xlsx", method.getName());
-		return data;
+	@DataProvider(name = "data", parallel = true)
+	public Iterator<Object[]> testData(Method method) {
+		return TestDataStore.sheet("TestData.xlsx", method.getName()).iterator();
 	}
 
 }
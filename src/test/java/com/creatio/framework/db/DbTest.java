@@ -0,0 +1,118 @@
+package com.creatio.framework.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.creatio.framework.utilities.ConfigService;
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Runs {@link Db} and {@link DbPool} against a real PostgreSQL database. Skipped unless the
+ * database is given on the command line, e.g.
+ * {@code mvn test -Dtest=DbTest -DDB_URL=jdbc:postgresql://localhost:5432/test -DDB_USER=postgres -DDB_PASS=secret}.
+ */
+public class DbTest {
+
+    private final String table = "db_test_" + System.nanoTime();
+
+    private DbPool pool;
+    private Db db;
+
+    @BeforeClass
+    public void connect() throws SQLException {
+        String url = System.getProperty("DB_URL");
+        if (url == null || url.isEmpty()) {
+            throw new SkipException("-DDB_URL is not set");
+        }
+        pool = new DbPool(url, ConfigService.current().get("DB_USER"), ConfigService.current().get("DB_PASS"));
+        db = new Db(pool);
+        db.update("CREATE TABLE " + table + " (id INT PRIMARY KEY, name TEXT)");
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void disconnect() throws SQLException {
+        if (pool != null) {
+            db.update("DROP TABLE IF EXISTS " + table);
+            pool.close();
+        }
+    }
+
+    @Test
+    public void batchInsertsEveryRowAndQueriesReadThemBack() throws SQLException {
+        db.update("DELETE FROM " + table);
+        List<Object[]> rows = new ArrayList<Object[]>();
+        for (int i = 0; i < 2500; i++) {
+            rows.add(new Object[] {i, "name " + i});
+        }
+
+        Assert.assertEquals(db.batch("INSERT INTO " + table + " (id, name) VALUES (?, ?)", rows), 2500);
+        Assert.assertEquals(db.queryOne("SELECT name FROM " + table + " WHERE id = ?", rs -> rs.getString(1), 1234), "name 1234");
+        Assert.assertEquals(db.query("SELECT id FROM " + table + " WHERE id < ? ORDER BY id", rs -> rs.getInt(1), 3).size(), 3);
+        AtomicLong sum = new AtomicLong();
+        Assert.assertEquals(db.stream("SELECT id FROM " + table, rs -> sum.addAndGet(rs.getInt(1))), 2500);
+        Assert.assertEquals(sum.get(), 2499L * 2500 / 2);
+    }
+
+    @Test
+    public void failedBatchKeepsNoRows() throws SQLException {
+        db.update("DELETE FROM " + table);
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[] {1, "first"});
+        rows.add(new Object[] {1, "duplicate"});
+
+        Assert.assertThrows(SQLException.class, () -> db.batch("INSERT INTO " + table + " (id, name) VALUES (?, ?)", rows));
+        Assert.assertNull(db.queryOne("SELECT name FROM " + table + " WHERE id = ?", rs -> rs.getString(1), 1));
+    }
+
+    @Test
+    public void statementsAnswerWithTheBorrowedConnection() throws SQLException {
+        try (Connection connection = pool.getConnection();
+                PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            Assert.assertSame(statement.getConnection(), connection);
+            Assert.assertSame(connection.getMetaData().getConnection(), connection);
+        }
+    }
+
+    @Test
+    public void returnedConnectionsAreResetForTheNextBorrower() throws SQLException {
+        Statement leftOpen;
+        try (Connection connection = pool.getConnection()) {
+            leftOpen = connection.createStatement();
+            leftOpen.execute("SET search_path TO pg_catalog");
+            connection.setReadOnly(true);
+        }
+
+        Assert.assertTrue(leftOpen.isClosed());
+        // The pool hands out the most recently returned connection first
+        try (Connection connection = pool.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery("SHOW search_path")) {
+            rows.next();
+            Assert.assertNotEquals(rows.getString(1), "pg_catalog");
+            Assert.assertFalse(connection.isReadOnly());
+        }
+    }
+
+    @Test
+    public void closingReturnsTheConnectionToThePool() throws SQLException {
+        Connection first = pool.getConnection();
+        first.close();
+
+        Assert.assertTrue(first.isClosed());
+        Assert.assertThrows(SQLException.class, () -> first.createStatement());
+        try (Connection second = pool.getConnection()) {
+            Assert.assertFalse(second.isClosed());
+            Assert.assertTrue(second.getAutoCommit());
+        }
+    }
+}